@@ -0,0 +1,187 @@
+////////////////////////////////////////////////////////////////////////////////
+// Copyright 2014 Michael Schmalle - Teoti Graphix, LLC
+// 
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+// 
+// http://www.apache.org/licenses/LICENSE-2.0 
+// 
+// Unless required by applicable law or agreed to in writing, software 
+// distributed under the License is distributed on an "AS IS" BASIS, 
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and 
+// limitations under the License
+// 
+// Author: Michael Schmalle, Principal Architect
+// mschmalle at teotigraphix dot com
+////////////////////////////////////////////////////////////////////////////////
+
+package com.teotigraphix.bitwig.apiparser.bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import org.apache.commons.io.FileUtils;
+
+import com.teotigraphix.bitwig.apiparser.core.APIParser;
+import com.teotigraphix.bitwig.apiparser.core.ParserConfig;
+import com.teotigraphix.bitwig.apiparser.core.PhaseMetrics;
+import com.teotigraphix.bitwig.apiparser.core.StringOutputSink;
+
+/**
+ * Measures the phases of a generation run against a synthetic API, reporting
+ * throughput and the bytes allocated per operation for each.
+ * <p>
+ * The stubs and changes phases are taken from the metrics of
+ * {@link APIParser#build()} on a fresh parser, so they run the emitters of a
+ * real build; the output is kept in memory.
+ * <p>
+ * Usage:
+ * <code>APIParserBenchmark [interfaces] [methods] [versions] [iterations]</code>
+ *
+ * @author Michael Schmalle
+ * @since 1.0
+ */
+public class APIParserBenchmark {
+
+    private static final int WARMUP_ITERATIONS = 5;
+
+    private static final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+
+    private ParserConfig config;
+
+    private int iterations;
+
+    public APIParserBenchmark(ParserConfig config, int iterations) {
+        this.config = config;
+        this.iterations = iterations;
+    }
+
+    public static void main(String[] args) throws IOException {
+        int interfaces = args.length > 0 ? Integer.parseInt(args[0]) : 500;
+        int methods = args.length > 1 ? Integer.parseInt(args[1]) : 40;
+        int versions = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+        int iterations = args.length > 3 ? Integer.parseInt(args[3]) : 10;
+
+        File directory = new File(FileUtils.getTempDirectory(), "apiparser-bench-"
+                + System.nanoTime());
+        try {
+            File source = new SyntheticAPIGenerator(interfaces, methods, versions)
+                    .generate(new File(directory, "src"));
+            File output = new File(directory, "output");
+            ParserConfig config = new ParserConfig(source.getPath(), output.getPath(),
+                    "API Benchmark");
+            config.setChangesFile(new File(output, "changes.html"));
+            config.setOutputSink(new StringOutputSink());
+
+            System.out.println(String.format(Locale.ENGLISH,
+                    "%d interfaces, %d methods, %d versions, %d iterations", interfaces,
+                    methods, versions, iterations));
+            new APIParserBenchmark(config, iterations).run();
+        } finally {
+            FileUtils.deleteQuietly(directory);
+        }
+    }
+
+    public void run() throws IOException {
+        measure("parse", new Phase() {
+            @Override
+            public void run() {
+                new APIParser(config);
+            }
+        });
+
+        final APIParser parser = new APIParser(config);
+        measure(PhaseMetrics.ANALYZE, new Phase() {
+            @Override
+            public void run() {
+                parser.parse();
+            }
+        });
+
+        measureBuild();
+    }
+
+    /**
+     * Builds a fresh parser per operation, the normalized tags and resolved
+     * signatures it memoizes would otherwise carry over into the next build.
+     */
+    private void measureBuild() throws IOException {
+        Map<String, long[]> phases = new LinkedHashMap<String, long[]>();
+        for (int i = 0; i < WARMUP_ITERATIONS + iterations; i++) {
+            APIParser parser = new APIParser(config);
+            parser.parse();
+            parser.getMetrics().clear();
+            parser.build();
+            if (i < WARMUP_ITERATIONS)
+                continue;
+
+            for (PhaseMetrics phase : parser.getMetrics()) {
+                long[] totals = phases.get(phase.getName());
+                if (totals == null) {
+                    totals = new long[2];
+                    phases.put(phase.getName(), totals);
+                }
+                totals[0] += phase.getWallNanos();
+                totals[1] += phase.getAllocatedBytes();
+            }
+        }
+
+        for (Map.Entry<String, long[]> entry : phases.entrySet()) {
+            print(entry.getKey(), entry.getValue()[0], entry.getValue()[1]);
+        }
+    }
+
+    private void measure(String name, Phase phase) {
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            phase.setUp();
+            phase.run();
+        }
+
+        long nanos = 0;
+        long allocated = 0;
+        for (int i = 0; i < iterations; i++) {
+            phase.setUp();
+            long bytes = allocatedBytes();
+            long start = System.nanoTime();
+            phase.run();
+            nanos += System.nanoTime() - start;
+            allocated += allocatedBytes() - bytes;
+        }
+        print(name, nanos, allocated);
+    }
+
+    private void print(String name, long nanos, long allocated) {
+        double seconds = nanos / 1e9;
+        System.out.println(String.format(Locale.ENGLISH,
+                "%-20s %10.3f ops/s %12.3f ms/op %14.0f B/op %10.1f MB/s alloc", name,
+                iterations / seconds, nanos / 1e6 / iterations, (double)allocated / iterations,
+                allocated / seconds / (1024 * 1024)));
+    }
+
+    /**
+     * Returns the bytes allocated by the current thread, or <code>0</code> if
+     * the JVM does not expose allocation counters.
+     */
+    private static long allocatedBytes() {
+        if (threads instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean)threads).getThreadAllocatedBytes(Thread
+                    .currentThread().getId());
+        }
+        return 0;
+    }
+
+    abstract static class Phase {
+
+        public void setUp() {
+        }
+
+        public abstract void run();
+    }
+}
@@ -0,0 +1,147 @@
+////////////////////////////////////////////////////////////////////////////////
+// Copyright 2014 Michael Schmalle - Teoti Graphix, LLC
+// 
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+// 
+// http://www.apache.org/licenses/LICENSE-2.0 
+// 
+// Unless required by applicable law or agreed to in writing, software 
+// distributed under the License is distributed on an "AS IS" BASIS, 
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and 
+// limitations under the License
+// 
+// Author: Michael Schmalle, Principal Architect
+// mschmalle at teotigraphix dot com
+////////////////////////////////////////////////////////////////////////////////
+
+package com.teotigraphix.bitwig.apiparser.bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+import org.apache.commons.io.FileUtils;
+
+/**
+ * Writes a synthetic Bitwig style controller API source tree, interfaces
+ * extending each other with documented methods, enums and
+ * <code>@since</code> tags spread over a number of versions.
+ * <p>
+ * The tree is generated from a fixed seed so runs are comparable.
+ *
+ * @author Michael Schmalle
+ * @since 1.0
+ */
+public class SyntheticAPIGenerator {
+
+    public static final String PACKAGE = "com.bitwig.base.control_surface.iface";
+
+    private static final String[] TYPES = {
+            "int", "double", "boolean", "String", "Object", "Number", "Callable", "byte[]",
+            "String[]", "Object[]"
+    };
+
+    private int interfaceCount;
+
+    private int methodCount;
+
+    private int versionCount;
+
+    private Random random = new Random(42);
+
+    public SyntheticAPIGenerator(int interfaceCount, int methodCount, int versionCount) {
+        this.interfaceCount = interfaceCount;
+        this.methodCount = methodCount;
+        this.versionCount = versionCount;
+    }
+
+    /**
+     * Generates the tree into <code>directory</code> and returns the package
+     * directory to use as the parser's source directory.
+     */
+    public File generate(File directory) throws IOException {
+        File packageDirectory = new File(directory, PACKAGE.replace('.', File.separatorChar));
+        FileUtils.forceMkdir(packageDirectory);
+
+        for (int i = 0; i < interfaceCount; i++) {
+            File file = new File(packageDirectory, toInterfaceName(i) + ".java");
+            FileUtils.write(file, generateInterface(i), "UTF-8");
+        }
+        return packageDirectory;
+    }
+
+    private String generateInterface(int index) {
+        String name = toInterfaceName(index);
+        StringBuilder sb = new StringBuilder();
+        sb.append("package ").append(PACKAGE).append(";\n\n");
+        sb.append("import org.mozilla.javascript.Callable;\n\n");
+        sb.append("/**\n");
+        sb.append(" * An interface representing ").append(name).append(".\n");
+        sb.append(" * Generated for benchmarking.\n");
+        if (index % 4 == 0)
+            sb.append(" * @since Bitwig Studio ").append(toVersion(index)).append("\n");
+        sb.append(" */\n");
+        sb.append("public interface ").append(name);
+        if (index > 0)
+            sb.append(" extends ").append(toInterfaceName(random.nextInt(index)));
+        sb.append("\n{\n");
+
+        for (int m = 0; m < methodCount; m++) {
+            generateMethod(sb, m);
+        }
+
+        if (index % 10 == 0) {
+            sb.append("   /**\n    * The modes of ").append(name).append(".\n    */\n");
+            sb.append("   enum Mode\n   {\n      FIRST,\n      SECOND,\n      THIRD;\n   }\n");
+        }
+        sb.append("}\n");
+        return sb.toString();
+    }
+
+    private void generateMethod(StringBuilder sb, int index) {
+        String returnType = random.nextInt(3) == 0 ? "void" : randomType();
+        int parameterCount = random.nextInt(4);
+
+        sb.append("   /**\n");
+        sb.append("    * Method ").append(index).append(" of the interface.\n");
+        sb.append("    * The description continues on a second line.\n");
+        boolean documented = random.nextBoolean();
+        for (int p = 0; p < parameterCount; p++) {
+            if (documented)
+                sb.append("    * @param p").append(p).append(" the value of p").append(p)
+                        .append("\n");
+        }
+        if (!returnType.equals("void") && random.nextBoolean())
+            sb.append("    * @return the result\n");
+        if (random.nextInt(3) == 0)
+            sb.append("    * @since Bitwig Studio ").append(toVersion(random.nextInt(1000)))
+                    .append("\n");
+        sb.append("    */\n");
+
+        sb.append("   ").append(returnType).append(" method").append(index).append("(");
+        for (int p = 0; p < parameterCount; p++) {
+            if (p > 0)
+                sb.append(", ");
+            sb.append(randomType()).append(" p").append(p);
+        }
+        sb.append(");\n\n");
+    }
+
+    private String randomType() {
+        if (random.nextInt(5) == 0 && interfaceCount > 0)
+            return toInterfaceName(random.nextInt(interfaceCount));
+        return TYPES[random.nextInt(TYPES.length)];
+    }
+
+    private String toVersion(int index) {
+        int version = index % versionCount;
+        return "1." + version;
+    }
+
+    private static String toInterfaceName(int index) {
+        return "Interface" + index;
+    }
+}
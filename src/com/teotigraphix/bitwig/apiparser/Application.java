@@ -21,9 +21,17 @@ package com.teotigraphix.bitwig.apiparser;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
 
 import com.teotigraphix.bitwig.apiparser.core.APIParser;
+import com.teotigraphix.bitwig.apiparser.core.BatchJob;
+import com.teotigraphix.bitwig.apiparser.core.BatchRunner;
 import com.teotigraphix.bitwig.apiparser.core.ParserConfig;
+import com.teotigraphix.bitwig.apiparser.core.SourceWatcher;
 
 /**
  * @author Michael Schmalle
@@ -36,12 +44,22 @@ public class Application {
 
     private static final String OUTPUT_DIR = "resources/output";
 
+    private static final String CHANGES_FILE = "BitwigStudio-API-Changes.html";
+
     /**
-     * @param args
+     * @param args <code>-watch</code> keeps running and rebuilds the stubs of
+     *        changed sources, <code>-batch jobs [parallelism]</code> runs the
+     *        jobs of a file with one <code>source output version</code> line,
+     *        tab separated, per job
      */
     public static void main(String[] args) {
-        ParserConfig config = new ParserConfig(SOURCE_DIR, OUTPUT_DIR, "API 1.1");
-        config.setChangesFile(new File(OUTPUT_DIR, "BitwigStudio-API-Changes.html"));
+        if (args.length > 1 && args[0].equals("-batch")) {
+            batch(new File(args[1]), args.length > 2 ? Integer.parseInt(args[2]) : Runtime
+                    .getRuntime().availableProcessors());
+            return;
+        }
+
+        ParserConfig config = createConfig(SOURCE_DIR, OUTPUT_DIR, "API 1.1");
 
         APIParser parser = new APIParser(config);
         parser.parse();
@@ -51,5 +69,59 @@ public class Application {
         } catch (IOException e) {
             e.printStackTrace();
         }
+
+        if (Arrays.asList(args).contains("-watch"))
+            watch(parser);
+    }
+
+    private static ParserConfig createConfig(String source, String output, String version) {
+        ParserConfig config = new ParserConfig(source, output, version);
+        config.setChangesFile(new File(output, CHANGES_FILE));
+        return config;
+    }
+
+    private static void batch(File jobs, int parallelism) {
+        BatchRunner runner = new BatchRunner(parallelism);
+        try {
+            List<String> lines = FileUtils.readLines(jobs, "UTF-8");
+            for (String line : lines) {
+                if (line.trim().isEmpty() || line.startsWith("#"))
+                    continue;
+                String[] split = line.split("\t");
+                if (split.length != 3)
+                    throw new IllegalArgumentException("Expected source, output and version: "
+                            + line);
+                runner.addJob(createConfig(split[0], split[1], split[2]));
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+            return;
+        }
+
+        long start = System.nanoTime();
+        runner.run();
+        for (BatchJob job : runner.getJobs()) {
+            System.out.println(job);
+        }
+        System.out.println("Batch of " + runner.getJobs().size() + " job(s) in "
+                + (System.nanoTime() - start) / 1000000 + " ms");
+    }
+
+    private static void watch(APIParser parser) {
+        try {
+            SourceWatcher watcher = new SourceWatcher(parser) {
+                @Override
+                protected void rebuilt(Collection<File> files, long nanos) {
+                    System.out.println("Rebuilt " + files.size() + " source(s) in " + nanos
+                            / 1000000 + " ms");
+                }
+            };
+            System.out.println("Watching " + SOURCE_DIR);
+            watcher.run();
+        } catch (IOException e) {
+            e.printStackTrace();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
     }
 }
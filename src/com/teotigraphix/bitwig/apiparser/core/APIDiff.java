@@ -0,0 +1,328 @@
+////////////////////////////////////////////////////////////////////////////////
+// Copyright 2014 Michael Schmalle - Teoti Graphix, LLC
+// 
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+// 
+// http://www.apache.org/licenses/LICENSE-2.0 
+// 
+// Unless required by applicable law or agreed to in writing, software 
+// distributed under the License is distributed on an "AS IS" BASIS, 
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and 
+// limitations under the License
+// 
+// Author: Michael Schmalle, Principal Architect
+// mschmalle at teotigraphix dot com
+////////////////////////////////////////////////////////////////////////////////
+
+package com.teotigraphix.bitwig.apiparser.core;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import com.thoughtworks.qdox.model.JavaClass;
+import com.thoughtworks.qdox.model.JavaMethod;
+import com.thoughtworks.qdox.model.JavaParameter;
+
+/**
+ * The differences between the top-level classes of two API models.
+ * <p>
+ * The previous model is indexed by qualified class name and each matched
+ * class by method signature, so comparing a model costs one lookup per class
+ * and method. Methods only in one model are paired by name and parameter
+ * count into a change of their parameter types, the rest are added or
+ * removed.
+ * <p>
+ * Current classes are compared one at a time with
+ * {@link #compareClass(JavaClass)}, {@link #complete()} then reports the
+ * previous classes that were not matched as removed.
+ *
+ * @author Michael Schmalle
+ * @since 1.0
+ */
+public class APIDiff {
+
+    public enum Kind {
+        ADDED, REMOVED, CHANGED
+    }
+
+    private Map<String, JavaClass> previousClasses = new LinkedHashMap<String, JavaClass>();
+
+    private List<ClassChange> changes = new ArrayList<ClassChange>();
+
+    /**
+     * Returns the changed classes, in the order compared followed by the
+     * removed classes.
+     */
+    public List<ClassChange> getChanges() {
+        return changes;
+    }
+
+    public APIDiff(Collection<JavaClass> previous) {
+        for (JavaClass javaClass : previous) {
+            if (!javaClass.isInner())
+                previousClasses.put(javaClass.getFullyQualifiedName(), javaClass);
+        }
+    }
+
+    public static APIDiff compare(Collection<JavaClass> previous, Collection<JavaClass> current) {
+        APIDiff diff = new APIDiff(previous);
+        for (JavaClass javaClass : current) {
+            diff.compareClass(javaClass);
+        }
+        diff.complete();
+        return diff;
+    }
+
+    /**
+     * Compares the current class to its previous version, returns the change
+     * or <code>null</code> if the class is unchanged or inner.
+     */
+    public ClassChange compareClass(JavaClass current) {
+        if (current.isInner())
+            return null;
+
+        JavaClass previous = previousClasses.remove(current.getFullyQualifiedName());
+        ClassChange change;
+        if (previous == null) {
+            change = new ClassChange(Kind.ADDED, null, current);
+            for (JavaMethod method : current.getMethods()) {
+                change.methods.add(new MethodChange(Kind.ADDED, null, method, false, false));
+            }
+        } else {
+            change = new ClassChange(Kind.CHANGED, previous, current);
+            change.supertypesChanged = !toNames(previous.getImplementedInterfaces()).equals(
+                    toNames(current.getImplementedInterfaces()));
+            compareMethods(previous, current, change.methods);
+            if (!change.supertypesChanged && change.methods.isEmpty())
+                return null;
+        }
+        changes.add(change);
+        return change;
+    }
+
+    /**
+     * Adds the previous classes no current class matched as removed.
+     */
+    public void complete() {
+        for (JavaClass previous : previousClasses.values()) {
+            ClassChange change = new ClassChange(Kind.REMOVED, previous, null);
+            for (JavaMethod method : previous.getMethods()) {
+                change.methods.add(new MethodChange(Kind.REMOVED, method, null, false, false));
+            }
+            changes.add(change);
+        }
+        previousClasses.clear();
+    }
+
+    private static void compareMethods(JavaClass previous, JavaClass current,
+            List<MethodChange> result) {
+        Map<String, JavaMethod> signatures = new LinkedHashMap<String, JavaMethod>();
+        for (JavaMethod method : previous.getMethods()) {
+            signatures.put(toSignature(method), method);
+        }
+
+        List<JavaMethod> added = new ArrayList<JavaMethod>();
+        for (JavaMethod method : current.getMethods()) {
+            JavaMethod match = signatures.remove(toSignature(method));
+            if (match == null) {
+                added.add(method);
+                continue;
+            }
+            boolean returns = !toReturnType(match).equals(toReturnType(method));
+            boolean parameters = !toParameterNames(match).equals(toParameterNames(method));
+            if (returns || parameters)
+                result.add(new MethodChange(Kind.CHANGED, match, method, returns, parameters));
+        }
+
+        // the unmatched previous methods, by name and parameter count
+        Map<String, List<JavaMethod>> removed = new HashMap<String, List<JavaMethod>>();
+        for (JavaMethod method : signatures.values()) {
+            String key = toOverload(method);
+            List<JavaMethod> list = removed.get(key);
+            if (list == null) {
+                list = new LinkedList<JavaMethod>();
+                removed.put(key, list);
+            }
+            list.add(method);
+        }
+
+        for (JavaMethod method : added) {
+            List<JavaMethod> list = removed.get(toOverload(method));
+            if (list == null || list.isEmpty()) {
+                result.add(new MethodChange(Kind.ADDED, null, method, false, false));
+                continue;
+            }
+            JavaMethod match = list.remove(0);
+            signatures.remove(toSignature(match));
+            boolean returns = !toReturnType(match).equals(toReturnType(method));
+            result.add(new MethodChange(Kind.CHANGED, match, method, returns, true));
+        }
+
+        for (JavaMethod method : signatures.values()) {
+            result.add(new MethodChange(Kind.REMOVED, method, null, false, false));
+        }
+    }
+
+    /**
+     * Returns the name and erased parameter types, the key a method is
+     * matched by.
+     */
+    static String toSignature(JavaMethod method) {
+        StringBuilder sb = new StringBuilder(method.getName()).append('(');
+        List<JavaParameter> parameters = method.getParameters();
+        for (int i = 0; i < parameters.size(); i++) {
+            JavaParameter parameter = parameters.get(i);
+            if (i > 0)
+                sb.append(',');
+            sb.append(parameter.getType().getFullyQualifiedName());
+            if (parameter.isVarArgs())
+                sb.append("...");
+        }
+        return sb.append(')').toString();
+    }
+
+    private static String toOverload(JavaMethod method) {
+        return method.getName() + "/" + method.getParameters().size();
+    }
+
+    private static String toReturnType(JavaMethod method) {
+        return method.getReturns().getGenericFullyQualifiedName();
+    }
+
+    private static List<String> toParameterNames(JavaMethod method) {
+        List<String> result = new ArrayList<String>();
+        for (JavaParameter parameter : method.getParameters()) {
+            result.add(parameter.getName());
+        }
+        return result;
+    }
+
+    private static List<String> toNames(List<JavaClass> classes) {
+        List<String> result = new ArrayList<String>();
+        for (JavaClass javaClass : classes) {
+            result.add(javaClass.getFullyQualifiedName());
+        }
+        Collections.sort(result);
+        return result;
+    }
+
+    /**
+     * A class that was added, removed or has changed methods or supertypes.
+     */
+    public static class ClassChange {
+
+        private final Kind kind;
+
+        private final JavaClass previous;
+
+        private final JavaClass current;
+
+        private boolean supertypesChanged;
+
+        private List<MethodChange> methods = new ArrayList<MethodChange>();
+
+        public Kind getKind() {
+            return kind;
+        }
+
+        /**
+         * Returns the previous class, <code>null</code> if it was added.
+         */
+        public JavaClass getPrevious() {
+            return previous;
+        }
+
+        /**
+         * Returns the current class, <code>null</code> if it was removed.
+         */
+        public JavaClass getCurrent() {
+            return current;
+        }
+
+        public String getName() {
+            return current != null ? current.getName() : previous.getName();
+        }
+
+        public boolean isSupertypesChanged() {
+            return supertypesChanged;
+        }
+
+        /**
+         * Returns the changed methods, every method of an added or removed
+         * class.
+         */
+        public List<MethodChange> getMethods() {
+            return methods;
+        }
+
+        ClassChange(Kind kind, JavaClass previous, JavaClass current) {
+            this.kind = kind;
+            this.previous = previous;
+            this.current = current;
+        }
+    }
+
+    /**
+     * A method that was added, removed or has a changed return type or
+     * parameters.
+     */
+    public static class MethodChange {
+
+        private final Kind kind;
+
+        private final JavaMethod previous;
+
+        private final JavaMethod current;
+
+        private final boolean returnsChanged;
+
+        private final boolean parametersChanged;
+
+        public Kind getKind() {
+            return kind;
+        }
+
+        /**
+         * Returns the previous method, <code>null</code> if it was added.
+         */
+        public JavaMethod getPrevious() {
+            return previous;
+        }
+
+        /**
+         * Returns the current method, <code>null</code> if it was removed.
+         */
+        public JavaMethod getCurrent() {
+            return current;
+        }
+
+        public boolean isReturnsChanged() {
+            return returnsChanged;
+        }
+
+        /**
+         * Returns whether the parameter types or names changed.
+         */
+        public boolean isParametersChanged() {
+            return parametersChanged;
+        }
+
+        MethodChange(Kind kind, JavaMethod previous, JavaMethod current, boolean returnsChanged,
+                boolean parametersChanged) {
+            this.kind = kind;
+            this.previous = previous;
+            this.current = current;
+            this.returnsChanged = returnsChanged;
+            this.parametersChanged = parametersChanged;
+        }
+    }
+}
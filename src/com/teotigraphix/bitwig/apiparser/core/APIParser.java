@@ -21,25 +21,32 @@ package com.teotigraphix.bitwig.apiparser.core;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 import org.apache.commons.io.FileUtils;
 
-import com.teotigraphix.bitwig.apiparser.writer.ChangesWriter;
-import com.teotigraphix.bitwig.apiparser.writer.JsModelWriter;
+import com.teotigraphix.bitwig.apiparser.writer.CommentFormatter;
 import com.thoughtworks.qdox.JavaProjectBuilder;
 import com.thoughtworks.qdox.model.DocletTag;
 import com.thoughtworks.qdox.model.JavaClass;
 import com.thoughtworks.qdox.model.JavaMethod;
-import com.thoughtworks.qdox.model.JavaParameter;
 import com.thoughtworks.qdox.model.JavaSource;
-import com.thoughtworks.qdox.model.impl.DefaultDocletTag;
-import com.thoughtworks.qdox.model.impl.DefaultJavaClass;
-import com.thoughtworks.qdox.model.impl.DefaultJavaMethod;
+import com.thoughtworks.qdox.parser.ParseException;
 
 /**
  * @author Michael Schmalle
@@ -51,133 +58,636 @@ public class APIParser {
 
     private Map<String, List<JavaMethod>> sinceMethods = new HashMap<String, List<JavaMethod>>();
 
+    private Map<String, Map<JavaClass, List<JavaMethod>>> sinceIndex = new HashMap<String, Map<JavaClass, List<JavaMethod>>>();
+
+    private static final Comparator<JavaClass> CLASS_NAME_ORDER = new Comparator<JavaClass>() {
+        @Override
+        public int compare(JavaClass e1, JavaClass e2) {
+            return e1.getName().compareTo(e2.getName());
+        }
+    };
+
+    private static final Comparator<JavaMethod> METHOD_NAME_ORDER = new Comparator<JavaMethod>() {
+        @Override
+        public int compare(JavaMethod e1, JavaMethod e2) {
+            return e1.getName().compareTo(e2.getName());
+        }
+    };
+
+    private ParallelClassLibraryBuilder libraryBuilder;
+
     private JavaProjectBuilder builder;
 
     private ParserConfig config;
 
+    private List<PhaseMetrics> metrics = new ArrayList<PhaseMetrics>();
+
+    private CommentFormatter commentFormatter = new CommentFormatter();
+
+    private DocTagNormalizer docTags;
+
+    private MethodSignatures signatures;
+
+    private ModelCache modelCache;
+
+    private String fingerprint;
+
+    private boolean cached;
+
+    private Map<String, JavaSource> sources = new LinkedHashMap<String, JavaSource>();
+
+    private Set<String> changedClasses;
+
+    private Set<String> removedClasses = new HashSet<String>();
+
+    private APIParser previous;
+
     public List<Version> getVersions() {
         return versions;
     }
 
+    public ParserConfig getConfig() {
+        return config;
+    }
+
     public JavaProjectBuilder getBuilder() {
         return builder;
     }
 
+    /**
+     * Returns whether the model was loaded from the
+     * {@link ParserConfig#getModelCacheFile() model cache}.
+     */
+    public boolean isCached() {
+        return cached;
+    }
+
+    /**
+     * Returns the current sources of the model in source tree order, qdox
+     * keeps the replaced sources of a {@link #refresh(Collection)} around.
+     */
+    public Collection<JavaSource> getSources() {
+        return sources.values();
+    }
+
+    /**
+     * Returns the top-level classes of the {@link #getSources() sources}.
+     */
+    public List<JavaClass> getClasses() {
+        List<JavaClass> result = new ArrayList<JavaClass>();
+        for (JavaSource source : sources.values()) {
+            result.addAll(source.getClasses());
+        }
+        return result;
+    }
+
+    /**
+     * Returns the qualified names of the classes refreshed since the last
+     * build, <code>null</code> if every class has to be built.
+     */
+    public Set<String> getChangedClasses() {
+        return changedClasses;
+    }
+
+    /**
+     * Returns the qualified names of the classes removed since the last
+     * build.
+     */
+    public Set<String> getRemovedClasses() {
+        return removedClasses;
+    }
+
+    public CommentFormatter getCommentFormatter() {
+        return commentFormatter;
+    }
+
+    /**
+     * Sets the formatter the writers share, parsers of a batch share one so
+     * its cache spans the versions.
+     */
+    public void setCommentFormatter(CommentFormatter commentFormatter) {
+        this.commentFormatter = commentFormatter;
+    }
+
+    /**
+     * Returns the normalized doc tags of the model's methods.
+     */
+    public DocTagNormalizer getDocTags() {
+        if (docTags == null)
+            docTags = new DocTagNormalizer(config.getTypeResolver());
+        return docTags;
+    }
+
+    /**
+     * Returns the resolved signatures of the model's methods, with the types
+     * of the config's {@link ParserConfig#getTypeResolver() resolver}.
+     */
+    public MethodSignatures getSignatures() {
+        if (signatures == null)
+            signatures = new MethodSignatures(config.getTypeResolver(), getDocTags());
+        return signatures;
+    }
+
+    /**
+     * Returns the parsed model of the config's
+     * {@link ParserConfig#getPreviousConfig() previous release},
+     * <code>null</code> without one. A release does not change, it is parsed
+     * by the first build and kept for the following ones.
+     */
+    public APIParser getPrevious() {
+        ParserConfig previousConfig = config.getPreviousConfig();
+        if (previousConfig == null)
+            return null;
+        if (previous == null || previous.getConfig() != previousConfig) {
+            previous = new APIParser(previousConfig);
+            previous.parse();
+        }
+        return previous;
+    }
+
+    /**
+     * Returns the measurements of the phases run so far.
+     */
+    public List<PhaseMetrics> getMetrics() {
+        return metrics;
+    }
+
     public List<JavaMethod> getSinceMethods(String key) {
         return sinceMethods.get(key);
     }
 
+    /**
+     * Returns the methods of the class introduced in the version sorted by
+     * name, or <code>null</code> if the class has none.
+     */
+    public List<JavaMethod> getSinceMethods(String key, JavaClass javaClass) {
+        Map<JavaClass, List<JavaMethod>> classes = sinceIndex.get(key);
+        return classes != null ? classes.get(javaClass) : null;
+    }
+
     public APIParser(ParserConfig config) {
         this.config = config;
-        builder = new JavaProjectBuilder();
-        builder.addSourceTree(config.getSourceDirectory());
+
+        PhaseTimer timer = new PhaseTimer(PhaseMetrics.SOURCE_TREE);
+        if (config.getModelCacheFile() != null) {
+            modelCache = new ModelCache(config.getModelCacheFile(), config.getSourceDirectory());
+            try {
+                fingerprint = ModelCache.fingerprint(config.getSourceDirectory());
+                libraryBuilder = newLibraryBuilder();
+                cached = modelCache.load(fingerprint, libraryBuilder);
+            } catch (IOException e) {
+                // without a fingerprint the cache can neither be used nor updated
+                modelCache = null;
+            }
+        }
+        if (!cached) {
+            libraryBuilder = newLibraryBuilder();
+            // the recordings are saved to the cache once parse() succeeds
+            libraryBuilder.setRecording(modelCache != null);
+            try {
+                libraryBuilder.addSourceTree(config.getSourceDirectory(),
+                        config.getThreadCount());
+            } catch (IOException e) {
+                throw new IllegalStateException("Cannot read source tree "
+                        + config.getSourceDirectory(), e);
+            } finally {
+                libraryBuilder.setRecording(false);
+            }
+        }
+        builder = new JavaProjectBuilder(libraryBuilder);
+        for (JavaSource source : builder.getSources()) {
+            sources.put(source.getURL().toString(), source);
+        }
+        timer.count(PhaseMetrics.COUNT_SOURCES, builder.getSources().size());
+        timer.count(PhaseMetrics.COUNT_CLASSES, builder.getClasses().size());
+        complete(timer);
     }
 
+    /**
+     * Builds the since-index, the doc tags are normalized when the writers
+     * ask for them, see {@link #getDocTags()}.
+     */
     public void parse() {
-        analyzeDocComments(builder.getSources());
+        PhaseTimer timer = new PhaseTimer(PhaseMetrics.ANALYZE);
+        indexSince(sources.values(), timer);
+        complete(timer);
+
+        if (modelCache != null && !cached) {
+            timer = new PhaseTimer(PhaseMetrics.MODEL_CACHE);
+            try {
+                int notRecorded = modelCache.save(fingerprint, libraryBuilder, sources.values());
+                cached = true;
+                timer.count(PhaseMetrics.COUNT_SOURCES, sources.size());
+                timer.count(PhaseMetrics.COUNT_REPARSED, notRecorded);
+                timer.count(PhaseMetrics.COUNT_BYTES, modelCache.getFile().length());
+            } catch (IOException e) {
+                // the next run parses again
+                timer.count(PhaseMetrics.COUNT_FAILED, 1);
+            }
+            libraryBuilder.clearRecordings();
+            complete(timer);
+        }
     }
 
+    private static ParallelClassLibraryBuilder newLibraryBuilder() {
+        ParallelClassLibraryBuilder libraryBuilder = new ParallelClassLibraryBuilder();
+        libraryBuilder.appendDefaultClassLoaders();
+        return libraryBuilder;
+    }
+
+    /**
+     * Parses the files again into the warm model and indexes the sources
+     * they produce, a file that no longer exists removes its source. The
+     * next {@link #build()} only renders the stubs of the changed classes.
+     * <p>
+     * A file that fails to parse keeps its previous source, the remaining
+     * files are refreshed before the first failure is thrown.
+     *
+     * @throws ParseException the first file that failed to parse
+     */
+    public void refresh(Collection<File> files) throws IOException {
+        metrics.clear();
+        if (changedClasses == null)
+            changedClasses = new HashSet<String>();
+
+        PhaseTimer timer = new PhaseTimer(PhaseMetrics.SOURCE_TREE);
+        List<JavaSource> changed = new ArrayList<JavaSource>();
+        ParseException failure = null;
+        for (File file : files) {
+            String key = file.toURI().toURL().toString();
+            JavaSource previous = sources.get(key);
+            if (!file.isFile()) {
+                if (previous != null) {
+                    sources.remove(key);
+                    markClasses(previous, removedClasses, changedClasses);
+                }
+                continue;
+            }
+
+            JavaSource source;
+            try {
+                source = builder.addSource(file);
+            } catch (ParseException e) {
+                if (failure == null)
+                    failure = e;
+                continue;
+            }
+            if (previous != null)
+                markClasses(previous, removedClasses, changedClasses);
+            markClasses(source, changedClasses, removedClasses);
+            sources.put(key, source);
+            changed.add(source);
+        }
+        timer.count(PhaseMetrics.COUNT_SOURCES, changed.size());
+        complete(timer);
+
+        timer = new PhaseTimer(PhaseMetrics.ANALYZE);
+        for (JavaSource source : changed) {
+            for (JavaClass javaClass : source.getClasses()) {
+                getDocTags().invalidate(javaClass);
+                getSignatures().invalidate(javaClass);
+            }
+        }
+        indexSince(sources.values(), timer);
+        complete(timer);
+
+        if (failure != null)
+            throw failure;
+    }
+
+    private static void markClasses(JavaSource source, Set<String> add, Set<String> remove) {
+        for (JavaClass javaClass : source.getClasses()) {
+            add.add(javaClass.getFullyQualifiedName());
+            remove.remove(javaClass.getFullyQualifiedName());
+        }
+    }
+
+    /**
+     * Emits the classes matching the config's
+     * {@link ParserConfig#getIncludes() includes} and
+     * {@link ParserConfig#getExcludes() excludes}, every class without
+     * patterns.
+     */
     public void build() throws IOException {
-        Collection<JavaClass> classes = builder.getClasses();
+        List<IModelEmitter> emitters = new ArrayList<IModelEmitter>();
+        List<PhaseTimer> timers = new ArrayList<PhaseTimer>();
+
+        PhaseTimer timer = new PhaseTimer(PhaseMetrics.STUBS);
+        if (config.getBundleFile() != null)
+            emitters.add(new BundleEmitter(config, timer));
+        else
+            emitters.add(new StubEmitter(config, timer, false));
+        timers.add(timer);
+
+        timer = new PhaseTimer(PhaseMetrics.CHANGES);
+        emitters.add(new ChangesEmitter(config, timer));
+        timers.add(timer);
+
+        if (config.getDeclarationsFile() != null) {
+            timer = new PhaseTimer(PhaseMetrics.DECLARATIONS);
+            emitters.add(new DeclarationsEmitter(config, timer));
+            timers.add(timer);
+        }
+
+        if (config.getExportFile() != null) {
+            timer = new PhaseTimer(PhaseMetrics.EXPORT);
+            emitters.add(new ModelExportEmitter(config, timer));
+            timers.add(timer);
+        }
 
-        buildAPIStubs(classes);
-        buildAPIChanges(classes);
+        for (IModelEmitter emitter : config.getEmitters()) {
+            emitters.add(emitter);
+            timers.add(new PhaseTimer(emitter.getName()));
+        }
+
+        build(filterClasses(), emitters, timers);
+        // only refresh() narrows the next build down to the changed classes
+        changedClasses = null;
+        removedClasses.clear();
     }
 
-    private void buildAPIStubs(Collection<JavaClass> classes) throws IOException {
-        for (JavaClass javaClass : classes) {
-            if (javaClass.isInner())
-                continue;
+    /**
+     * Renders the stubs of the named classes and their supertypes only,
+     * leaving the other stubs and the changes report as they are. Names are
+     * simple or qualified.
+     *
+     * @throws IllegalArgumentException a name is not a class of the model
+     * @throws IllegalStateException the config writes a bundle or to a sink
+     *         that is not {@link IOutputSink#isPersistent() persistent},
+     *         which are always built whole
+     */
+    public void build(Collection<String> classNames) throws IOException {
+        if (config.getBundleFile() != null)
+            throw new IllegalStateException("A bundle can not be built partially");
+        if (!config.getOutputSink().isPersistent())
+            throw new IllegalStateException("The output sink can not be built partially");
+
+        Map<String, JavaClass> classes = new HashMap<String, JavaClass>();
+        for (JavaClass javaClass : getClasses()) {
+            classes.put(javaClass.getName(), javaClass);
+            classes.put(javaClass.getFullyQualifiedName(), javaClass);
+        }
 
-            JsModelWriter writer = new JsModelWriter(config.getVersion());
-            writer.writeSource(javaClass.getSource());
+        List<JavaClass> requested = new ArrayList<JavaClass>();
+        for (String className : classNames) {
+            JavaClass javaClass = classes.get(className);
+            if (javaClass == null)
+                throw new IllegalArgumentException("Unknown class " + className);
+            requested.add(javaClass);
+        }
 
-            String fileName = javaClass.getName();
-            File target = new File(config.getOutputDirectory(), fileName + IWriterConstants.JS);
-            String data = writer.toString();
+        PhaseTimer timer = new PhaseTimer(PhaseMetrics.STUBS);
+        List<IModelEmitter> emitters = new ArrayList<IModelEmitter>();
+        emitters.add(new StubEmitter(config, timer, true));
+        build(withSupertypes(requested), emitters, Collections.singletonList(timer));
+    }
 
-            save(target, data);
+    private void build(Collection<JavaClass> classes, List<IModelEmitter> emitters,
+            List<PhaseTimer> timers) throws IOException {
+        boolean completed = false;
+        try {
+            emit(classes, emitters, timers);
+            completed = true;
+        } finally {
+            if (completed)
+                config.getOutputSink().close();
+            else
+                config.getOutputSink().discard();
         }
+
+        if (config.getMetricsFile() != null)
+            writeMetrics(config.getMetricsFile());
     }
 
-    private void buildAPIChanges(Collection<JavaClass> classes) throws IOException {
-        ChangesWriter writer = new ChangesWriter(this);
+    private Collection<JavaClass> filterClasses() {
+        return filterClasses(getClasses(), config);
+    }
+
+    /**
+     * Returns the classes of the model the config's includes and excludes
+     * select, along with their supertypes; the model of a previous release
+     * is filtered the same way so a filtered build compares like with like.
+     */
+    static Collection<JavaClass> filterClasses(List<JavaClass> model, ParserConfig config) {
+        if (config.getIncludes().isEmpty() && config.getExcludes().isEmpty())
+            return model;
+
+        ClassFilter filter = new ClassFilter(config.getIncludes(), config.getExcludes());
+        List<JavaClass> included = new ArrayList<JavaClass>();
+        for (JavaClass javaClass : model) {
+            if (filter.isIncluded(javaClass))
+                included.add(javaClass);
+        }
 
-        String data = writer.write();
-        save(config.getChangesFile(), data);
+        List<JavaClass> result = new ArrayList<JavaClass>();
+        for (JavaClass javaClass : withSupertypes(model, included)) {
+            if (!filter.isExcluded(javaClass))
+                result.add(javaClass);
+        }
+        return result;
     }
 
-    private void analyzeDocComments(Collection<JavaSource> sources) {
-        for (JavaSource javaSource : sources) {
-            DefaultJavaClass clazz = (DefaultJavaClass)javaSource.getClasses().get(0);
-            for (JavaMethod method : clazz.getMethods()) {
-                List<DocletTag> list = new ArrayList<DocletTag>();
-                DefaultJavaMethod dmethod = (DefaultJavaMethod)method;
-                // TODO Bug:
-                if (dmethod.getTags() == null)
-                    dmethod.setTags(new ArrayList<DocletTag>());
+    private Collection<JavaClass> withSupertypes(Collection<JavaClass> classes) {
+        return withSupertypes(getClasses(), classes);
+    }
 
-                analyzeParameters(dmethod, list);
-                analyzeReturns(dmethod, list);
-                analyzeThrows(dmethod, list);
-                analyzeSince(dmethod, list);
+    /**
+     * Returns the classes and the supertypes of the model they extend,
+     * directly or through other supertypes.
+     */
+    private static Collection<JavaClass> withSupertypes(List<JavaClass> classes,
+            Collection<JavaClass> selected) {
+        Map<String, JavaClass> model = new HashMap<String, JavaClass>();
+        for (JavaClass javaClass : classes) {
+            model.put(javaClass.getFullyQualifiedName(), javaClass);
+        }
 
-                dmethod.setTags(list);
+        Set<JavaClass> result = new LinkedHashSet<JavaClass>();
+        List<JavaClass> pending = new ArrayList<JavaClass>(selected);
+        while (!pending.isEmpty()) {
+            JavaClass javaClass = pending.remove(pending.size() - 1);
+            if (!result.add(javaClass))
+                continue;
+
+            List<JavaClass> supertypes = new ArrayList<JavaClass>(
+                    javaClass.getImplementedInterfaces());
+            if (javaClass.getSuperJavaClass() != null)
+                supertypes.add(javaClass.getSuperJavaClass());
+            for (JavaClass supertype : supertypes) {
+                JavaClass modelClass = model.get(supertype.getFullyQualifiedName());
+                if (modelClass != null)
+                    pending.add(modelClass);
             }
         }
+        return result;
     }
 
-    private void analyzeParameters(DefaultJavaMethod dmethod, List<DocletTag> list) {
-        List<JavaParameter> parameters = dmethod.getParameters();
-        List<DocletTag> params = null;
+    /**
+     * Walks the top-level classes once in name order, dispatching each class
+     * and its methods to every emitter.
+     */
+    private void emit(Collection<JavaClass> classes, List<IModelEmitter> emitters,
+            List<PhaseTimer> timers) throws IOException {
+        List<JavaClass> sorted = new ArrayList<JavaClass>(classes.size());
+        for (JavaClass javaClass : classes) {
+            if (!javaClass.isInner())
+                sorted.add(javaClass);
+        }
+        Collections.sort(sorted, CLASS_NAME_ORDER);
+
+        // timers are created running, only the emitter's own calls count
+        for (PhaseTimer timer : timers) {
+            timer.pause();
+        }
 
-        params = dmethod.getTagsByName(IWriterConstants.TAG_PARAM);
+        for (int i = 0; i < emitters.size(); i++) {
+            timers.get(i).resume();
+            emitters.get(i).beginModel(this);
+            timers.get(i).pause();
+        }
 
-        if (parameters.size() != params.size()) {
-            for (JavaParameter parameter : parameters) {
-                list.add(new DefaultDocletTag(IWriterConstants.TAG_PARAM, parameter.getName()));
+        for (JavaClass javaClass : sorted) {
+            List<JavaMethod> methods = javaClass.getMethods();
+            for (int i = 0; i < emitters.size(); i++) {
+                IModelEmitter emitter = emitters.get(i);
+                timers.get(i).resume();
+                emitter.visitClass(javaClass);
+                for (JavaMethod method : methods) {
+                    emitter.visitMethod(method);
+                }
+                timers.get(i).pause();
             }
-        } else if (params.size() > 0) {
-            list.addAll(params);
+        }
+
+        for (int i = 0; i < emitters.size(); i++) {
+            timers.get(i).resume();
+            emitters.get(i).endModel();
+            complete(timers.get(i));
         }
     }
 
-    private void analyzeReturns(DefaultJavaMethod dmethod, List<DocletTag> list) {
-        JavaClass returns = dmethod.getReturns();
-        String qName = returns.getFullyQualifiedName();
-        DocletTag returnTag = dmethod.getTagByName(IWriterConstants.TAG_RETURN);
+    private void complete(PhaseTimer timer) {
+        PhaseMetrics phase = timer.stop();
+        metrics.add(phase);
+        for (IParserListener listener : config.getListeners()) {
+            listener.phaseCompleted(phase);
+        }
+    }
 
-        if (returnTag == null && !qName.equals("void")) {
-            returnTag = new DefaultDocletTag(IWriterConstants.TAG_RETURN, "");
+    private void writeMetrics(File target) throws IOException {
+        JsonWriter writer = new JsonWriter(new OutputStreamWriter(
+                FileUtils.openOutputStream(target), "UTF-8"));
+        try {
+            writer.setIndent("  ");
+            writer.beginObject();
+            writer.name("version").value(config.getVersion());
+            writer.name("threads").value(config.getThreadCount());
+            writer.name("phases").beginArray();
+            for (PhaseMetrics phase : metrics) {
+                phase.write(writer);
+            }
+            writer.endArray();
+            Map<String, Long> counts = config.getOutputSink().getCounts();
+            if (!counts.isEmpty()) {
+                writer.name("output").beginObject();
+                for (Map.Entry<String, Long> entry : counts.entrySet()) {
+                    writer.name(entry.getKey()).value(entry.getValue());
+                }
+                writer.endObject();
+            }
+            writer.endObject();
+        } finally {
+            writer.close();
         }
-        if (returnTag != null)
-            list.add(returnTag);
     }
 
-    private void analyzeThrows(DefaultJavaMethod dmethod, List<DocletTag> list) {
-        List<JavaClass> exceptions = dmethod.getExceptions();
-        List<DocletTag> throwz = dmethod.getTagsByName(IWriterConstants.TAG_THROWS);
+    /**
+     * Rebuilds the since-index from the <code>@since</code> tags of the
+     * sources. With more than one {@link ParserConfig#getThreadCount() thread}
+     * the sources are scanned on a fork-join pool, the scans are merged in
+     * source order so the index matches a sequential build.
+     */
+    private void indexSince(Collection<JavaSource> sources, PhaseTimer timer) {
+        versions.clear();
+        sinceMethods.clear();
+        sinceIndex.clear();
+
+        List<SinceScan> scans;
+        if (config.getThreadCount() == 1 || sources.size() < 2) {
+            SinceScan scan = new SinceScan(sources);
+            scan.run();
+            scans = Collections.singletonList(scan);
+        } else {
+            scans = scanParallel(new ArrayList<JavaSource>(sources), timer);
+        }
 
-        if (exceptions.size() != throwz.size()) {
-            for (JavaClass javaClass : exceptions) {
-                list.add(new DefaultDocletTag(IWriterConstants.TAG_THROWS,
-                        toExceptionSimpleName(javaClass.getName())));
+        int classCount = 0;
+        int methodCount = 0;
+        int tagCount = 0;
+        for (SinceScan scan : scans) {
+            classCount += scan.classCount;
+            methodCount += scan.methodCount;
+            tagCount += scan.tagCount;
+            for (int i = 0; i < scan.methods.size(); i++) {
+                addSince(scan.methods.get(i), scan.versions.get(i));
+            }
+        }
+        timer.count(PhaseMetrics.COUNT_SOURCES, sources.size());
+        timer.count(PhaseMetrics.COUNT_CLASSES, classCount);
+        timer.count(PhaseMetrics.COUNT_METHODS, methodCount);
+        timer.count(PhaseMetrics.COUNT_TAGS, tagCount);
+
+        for (Map<JavaClass, List<JavaMethod>> classes : sinceIndex.values()) {
+            for (List<JavaMethod> methods : classes.values()) {
+                Collections.sort(methods, METHOD_NAME_ORDER);
             }
-        } else if (throwz.size() > 0) {
-            list.addAll(throwz);
         }
     }
 
-    private void analyzeSince(DefaultJavaMethod dmethod, List<DocletTag> list) {
-        DocletTag tag = dmethod.getTagByName(IWriterConstants.TAG_SINCE);
-        if (tag != null) {
-            list.add(tag);
-            addSince(dmethod, tag);
+    private List<SinceScan> scanParallel(List<JavaSource> sources, final PhaseTimer timer) {
+        int threadCount = config.getThreadCount();
+        // a few chunks per thread even out sources of different sizes
+        int chunkSize = Math.max(1, sources.size() / (threadCount * 4));
+
+        List<SinceScan> scans = new ArrayList<SinceScan>();
+        List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+        for (int i = 0; i < sources.size(); i += chunkSize) {
+            final SinceScan scan = new SinceScan(sources.subList(i,
+                    Math.min(i + chunkSize, sources.size())));
+            scans.add(scan);
+            tasks.add(new Callable<Void>() {
+                @Override
+                public Void call() {
+                    long cpu = PhaseTimer.cpuTime();
+                    long allocated = PhaseTimer.allocatedBytes();
+                    scan.run();
+                    timer.addWorkerUsage(PhaseTimer.cpuTime() - cpu,
+                            PhaseTimer.allocatedBytes() - allocated);
+                    return null;
+                }
+            });
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(threadCount);
+        try {
+            for (Future<Void> future : pool.invokeAll(tasks)) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Analysis interrupted", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException)
+                throw (RuntimeException)cause;
+            throw new IllegalStateException(cause);
+        } finally {
+            pool.shutdown();
         }
+        return scans;
     }
 
-    private void addSince(DefaultJavaMethod method, DocletTag tag) {
-        final Version version = new Version(tag.getValue().replace("Bitwig Studio", "").trim());
+    private void addSince(JavaMethod method, Version version) {
         List<JavaMethod> list = sinceMethods.get(version.get());
         if (list == null) {
             list = new ArrayList<JavaMethod>();
@@ -185,14 +695,60 @@ public class APIParser {
             versions.add(version);
         }
         list.add(method);
-    }
 
-    private static void save(File target, String data) throws IOException {
-        FileUtils.write(target, data);
+        Map<JavaClass, List<JavaMethod>> classes = sinceIndex.get(version.get());
+        if (classes == null) {
+            classes = new HashMap<JavaClass, List<JavaMethod>>();
+            sinceIndex.put(version.get(), classes);
+        }
+        List<JavaMethod> methods = classes.get(method.getDeclaringClass());
+        if (methods == null) {
+            methods = new ArrayList<JavaMethod>();
+            classes.put(method.getDeclaringClass(), methods);
+        }
+        methods.add(method);
     }
 
-    private static String toExceptionSimpleName(String qualifiedName) {
-        return qualifiedName.replace("com.bitwig.base.control_surface.", "").replace("$", ".");
-    }
+    /**
+     * The tagged methods of a run of sources in source order, scans of
+     * separate runs share nothing and may run concurrently.
+     */
+    private static class SinceScan implements Runnable {
+
+        private final Collection<JavaSource> sources;
+
+        private final List<JavaMethod> methods = new ArrayList<JavaMethod>();
+
+        private final List<Version> versions = new ArrayList<Version>();
+
+        private int classCount;
 
+        private int methodCount;
+
+        private int tagCount;
+
+        SinceScan(Collection<JavaSource> sources) {
+            this.sources = sources;
+        }
+
+        @Override
+        public void run() {
+            for (JavaSource javaSource : sources) {
+                List<JavaMethod> list = javaSource.getClasses().get(0).getMethods();
+                classCount++;
+                methodCount += list.size();
+                for (JavaMethod method : list) {
+                    // TODO Bug: qdox leaves the tags of some methods null
+                    if (method.getTags() == null)
+                        continue;
+                    tagCount += method.getTags().size();
+                    DocletTag tag = method.getTagByName(IWriterConstants.TAG_SINCE);
+                    if (tag != null) {
+                        methods.add(method);
+                        versions.add(Version.fromSince(tag.getValue()));
+                    }
+                }
+            }
+        }
+    }
 }
@@ -0,0 +1,315 @@
+////////////////////////////////////////////////////////////////////////////////
+// Copyright 2014 Michael Schmalle - Teoti Graphix, LLC
+// 
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+// 
+// http://www.apache.org/licenses/LICENSE-2.0 
+// 
+// Unless required by applicable law or agreed to in writing, software 
+// distributed under the License is distributed on an "AS IS" BASIS, 
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and 
+// limitations under the License
+// 
+// Author: Michael Schmalle, Principal Architect
+// mschmalle at teotigraphix dot com
+////////////////////////////////////////////////////////////////////////////////
+
+package com.teotigraphix.bitwig.apiparser.core;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TimeZone;
+import java.util.TreeMap;
+import java.util.jar.Attributes;
+import java.util.jar.JarFile;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.output.CountingOutputStream;
+
+/**
+ * Streams the targets into a zip archive, or a jar when the archive's name
+ * ends with <code>.jar</code>, instead of the output directory.
+ * <p>
+ * Each target becomes an entry named by its path relative to the base
+ * directory, or by its file name when it is outside of it. An entry is kept
+ * in memory once it is closed, so worker threads never share an open entry,
+ * and {@link #close()} writes the entries of the build sorted by name to a
+ * temporary file that replaces the archive atomically where the file system
+ * supports it. A failed build {@link #discard() discards} its entries and
+ * leaves the previous archive alone.
+ * <p>
+ * Entries are stamped with the time they are written unless an
+ * {@link #setEntryTime(long) entry time} is set. With a fixed time a build
+ * produces the same archive byte for byte, however many threads render it.
+ *
+ * @author Michael Schmalle
+ * @since 1.0
+ */
+public class ArchiveOutputSink implements IOutputSink {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final int ENTRY_BUFFER_SIZE = 8 * 1024;
+
+    private File archive;
+
+    private File baseDirectory;
+
+    private long entryTime = -1;
+
+    private int level = -1;
+
+    private SortedMap<String, byte[]> entries = new TreeMap<String, byte[]>();
+
+    private int entryCount;
+
+    private long archiveSize;
+
+    /**
+     * @param archive the zip or jar file written
+     * @param baseDirectory the directory entry names are relative to,
+     *        usually the config's output directory
+     */
+    public ArchiveOutputSink(File archive, File baseDirectory) {
+        this.archive = archive;
+        this.baseDirectory = baseDirectory;
+    }
+
+    public File getArchive() {
+        return archive;
+    }
+
+    public File getBaseDirectory() {
+        return baseDirectory;
+    }
+
+    /**
+     * The time in milliseconds (UTC) every entry is stamped with,
+     * <code>-1</code> (the default) stamps the time it is written.
+     */
+    public long getEntryTime() {
+        return entryTime;
+    }
+
+    public void setEntryTime(long entryTime) {
+        this.entryTime = entryTime;
+    }
+
+    /**
+     * The deflate level of the entries, <code>-1</code> (the default) uses the
+     * default level.
+     */
+    public int getLevel() {
+        return level;
+    }
+
+    public void setLevel(int level) {
+        if (level < -1 || level > 9)
+            throw new IllegalArgumentException("Level must be between -1 and 9");
+        this.level = level;
+    }
+
+    /**
+     * The number of entries written to the archive of the last build.
+     */
+    public synchronized int getEntryCount() {
+        return entryCount;
+    }
+
+    /**
+     * The number of bytes written to the archive of the last build.
+     */
+    public synchronized long getArchiveSize() {
+        return archiveSize;
+    }
+
+    public boolean isJar() {
+        return archive.getName().toLowerCase().endsWith(".jar");
+    }
+
+    @Override
+    public Writer openWriter(File target) throws IOException {
+        return new OutputStreamWriter(new EntryStream(toEntryName(target)), "UTF-8");
+    }
+
+    @Override
+    public OutputStream openStream(File target) throws IOException {
+        return new EntryStream(toEntryName(target));
+    }
+
+    /**
+     * An entry is only kept once it is closed, there is nothing to discard.
+     */
+    @Override
+    public void abort(File target) throws IOException {
+    }
+
+    /**
+     * An archive is written whole by each build, a target that is no longer
+     * generated never makes it into the archive.
+     */
+    @Override
+    public void delete(File target) throws IOException {
+    }
+
+    /**
+     * The archive is written whole, it holds no target of a previous build.
+     */
+    @Override
+    public boolean exists(File target) {
+        return false;
+    }
+
+    /**
+     * The archive is replaced by every build.
+     */
+    @Override
+    public boolean isPersistent() {
+        return false;
+    }
+
+    @Override
+    public synchronized Map<String, Long> getCounts() {
+        Map<String, Long> counts = new LinkedHashMap<String, Long>();
+        counts.put("entries", (long)entryCount);
+        counts.put("bytes", getArchiveSize());
+        return counts;
+    }
+
+    /**
+     * Writes the entries of the build, the archive is left alone by a build
+     * that wrote none.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (entries.isEmpty())
+            return;
+
+        File directory = archive.getAbsoluteFile().getParentFile();
+        FileUtils.forceMkdir(directory);
+        File temp = File.createTempFile(archive.getName(), ".tmp", directory);
+        try {
+            long size = write(temp);
+            try {
+                Files.move(temp.toPath(), archive.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp.toPath(), archive.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+            entryCount = entries.size();
+            archiveSize = size;
+        } finally {
+            FileUtils.deleteQuietly(temp);
+            entries.clear();
+        }
+    }
+
+    @Override
+    public synchronized void discard() throws IOException {
+        entries.clear();
+    }
+
+    @Override
+    public synchronized String toString() {
+        return archive.getName() + ": entries=" + entryCount + ", bytes=" + archiveSize;
+    }
+
+    private long write(File file) throws IOException {
+        CountingOutputStream counting = new CountingOutputStream(new BufferedOutputStream(
+                new FileOutputStream(file), BUFFER_SIZE));
+        ZipOutputStream out = isJar() ? new JarOutputStream(counting) : new ZipOutputStream(
+                counting);
+        try {
+            out.setLevel(level);
+
+            // written here rather than by the JarOutputStream so it is
+            // stamped with the entry time as well
+            if (isJar()) {
+                Manifest manifest = new Manifest();
+                manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+                out.putNextEntry(newEntry(JarFile.MANIFEST_NAME));
+                manifest.write(out);
+                out.closeEntry();
+            }
+
+            for (Map.Entry<String, byte[]> entry : entries.entrySet()) {
+                out.putNextEntry(newEntry(entry.getKey()));
+                out.write(entry.getValue());
+                out.closeEntry();
+            }
+        } finally {
+            out.close();
+        }
+        return counting.getByteCount();
+    }
+
+    String toEntryName(File target) {
+        String base = baseDirectory.getAbsoluteFile().toURI().getPath();
+        // the directory is not created, its URI only ends with a slash when
+        // it exists
+        if (!base.endsWith("/"))
+            base += "/";
+        String path = target.getAbsoluteFile().toURI().getPath();
+        if (path.startsWith(base))
+            return path.substring(base.length());
+        return target.getName();
+    }
+
+    private synchronized void addEntry(String name, byte[] data) {
+        entries.put(name, data);
+    }
+
+    private ZipEntry newEntry(String name) {
+        ZipEntry entry = new ZipEntry(name);
+        if (entryTime == -1) {
+            entry.setTime(System.currentTimeMillis());
+        } else {
+            // entries store the local time, shift it so the archive does not
+            // depend on the time zone it was built in
+            entry.setTime(entryTime - TimeZone.getDefault().getOffset(entryTime));
+        }
+        return entry;
+    }
+
+    /**
+     * Collects an entry in memory, it is added to the build once closed.
+     */
+    class EntryStream extends ByteArrayOutputStream {
+
+        private String name;
+
+        private boolean closed;
+
+        EntryStream(String name) {
+            super(ENTRY_BUFFER_SIZE);
+            this.name = name;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed)
+                return;
+            closed = true;
+            addEntry(name, toByteArray());
+        }
+    }
+}
@@ -0,0 +1,102 @@
+////////////////////////////////////////////////////////////////////////////////
+// Copyright 2014 Michael Schmalle - Teoti Graphix, LLC
+// 
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+// 
+// http://www.apache.org/licenses/LICENSE-2.0 
+// 
+// Unless required by applicable law or agreed to in writing, software 
+// distributed under the License is distributed on an "AS IS" BASIS, 
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and 
+// limitations under the License
+// 
+// Author: Michael Schmalle, Principal Architect
+// mschmalle at teotigraphix dot com
+////////////////////////////////////////////////////////////////////////////////
+
+package com.teotigraphix.bitwig.apiparser.core;
+
+import java.io.FileNotFoundException;
+import java.util.Collections;
+import java.util.List;
+
+import com.teotigraphix.bitwig.apiparser.writer.CommentFormatter;
+
+/**
+ * One source drop of a {@link BatchRunner}, holding its results once the
+ * batch has run.
+ *
+ * @author Michael Schmalle
+ * @since 1.0
+ */
+public class BatchJob {
+
+    private ParserConfig config;
+
+    private List<PhaseMetrics> metrics = Collections.emptyList();
+
+    private long wallNanos;
+
+    private Exception failure;
+
+    public ParserConfig getConfig() {
+        return config;
+    }
+
+    /**
+     * Returns the measurements of the job's phases.
+     */
+    public List<PhaseMetrics> getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Returns the nanoseconds from the start of the job's parse to the end of
+     * its build.
+     */
+    public long getWallNanos() {
+        return wallNanos;
+    }
+
+    /**
+     * Returns the exception that ended the job, <code>null</code> if it
+     * completed.
+     */
+    public Exception getFailure() {
+        return failure;
+    }
+
+    public BatchJob(ParserConfig config) {
+        this.config = config;
+    }
+
+    void run(CommentFormatter commentFormatter) {
+        long start = System.nanoTime();
+        APIParser parser = null;
+        try {
+            // qdox reads a missing tree as an empty one
+            if (!config.getSourceDirectory().isDirectory())
+                throw new FileNotFoundException(config.getSourceDirectory().getPath());
+
+            parser = new APIParser(config);
+            parser.setCommentFormatter(commentFormatter);
+            parser.parse();
+            parser.build();
+        } catch (Exception e) {
+            failure = e;
+        } finally {
+            wallNanos = System.nanoTime() - start;
+            if (parser != null)
+                metrics = parser.getMetrics();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return config.getVersion() + " " + (wallNanos / 1000000) + "ms "
+                + (failure != null ? failure : metrics);
+    }
+}
@@ -0,0 +1,113 @@
+////////////////////////////////////////////////////////////////////////////////
+// Copyright 2014 Michael Schmalle - Teoti Graphix, LLC
+// 
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+// 
+// http://www.apache.org/licenses/LICENSE-2.0 
+// 
+// Unless required by applicable law or agreed to in writing, software 
+// distributed under the License is distributed on an "AS IS" BASIS, 
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and 
+// limitations under the License
+// 
+// Author: Michael Schmalle, Principal Architect
+// mschmalle at teotigraphix dot com
+////////////////////////////////////////////////////////////////////////////////
+
+package com.teotigraphix.bitwig.apiparser.core;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+
+import com.teotigraphix.bitwig.apiparser.writer.CommentFormatter;
+import com.teotigraphix.bitwig.apiparser.writer.TypeResolver;
+
+/**
+ * Runs the jobs of several API source drops in one process.
+ * <p>
+ * At most {@link #getParallelism()} jobs run at a time, each with its own
+ * {@link APIParser}. The jobs share the comment formatter's cache, the
+ * interned {@link Version}s and, unless a job brings its own, the runner's
+ * {@link #getTypeResolver() type resolver} with its conversions, a failed
+ * job does not stop the others.
+ *
+ * @author Michael Schmalle
+ * @since 1.0
+ */
+public class BatchRunner {
+
+    private int parallelism;
+
+    private List<BatchJob> jobs = new ArrayList<BatchJob>();
+
+    private CommentFormatter commentFormatter = new CommentFormatter();
+
+    private TypeResolver typeResolver = TypeResolver.createDefault();
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    public List<BatchJob> getJobs() {
+        return jobs;
+    }
+
+    /**
+     * The resolver set on the config of each job without one of its own as
+     * it is added, the Bitwig API's unless set; configure before adding the
+     * jobs.
+     */
+    public TypeResolver getTypeResolver() {
+        return typeResolver;
+    }
+
+    public void setTypeResolver(TypeResolver typeResolver) {
+        this.typeResolver = typeResolver;
+    }
+
+    public BatchRunner(int parallelism) {
+        if (parallelism < 1)
+            throw new IllegalArgumentException("Parallelism must be at least 1");
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Adds a job for the config, which shares the runner's
+     * {@link #getTypeResolver() type resolver} unless it has its own.
+     */
+    public BatchJob addJob(ParserConfig config) {
+        if (!config.hasTypeResolver())
+            config.setTypeResolver(typeResolver);
+        BatchJob job = new BatchJob(config);
+        jobs.add(job);
+        return job;
+    }
+
+    /**
+     * Runs every job, returns once all have completed or failed.
+     */
+    public void run() {
+        List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+        for (final BatchJob job : jobs) {
+            tasks.add(new Callable<Void>() {
+                @Override
+                public Void call() {
+                    job.run(commentFormatter);
+                    return null;
+                }
+            });
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            pool.invokeAll(tasks);
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
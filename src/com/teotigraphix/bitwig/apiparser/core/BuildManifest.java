@@ -0,0 +1,223 @@
+////////////////////////////////////////////////////////////////////////////////
+// Copyright 2014 Michael Schmalle - Teoti Graphix, LLC
+// 
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+// 
+// http://www.apache.org/licenses/LICENSE-2.0 
+// 
+// Unless required by applicable law or agreed to in writing, software 
+// distributed under the License is distributed on an "AS IS" BASIS, 
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and 
+// limitations under the License
+// 
+// Author: Michael Schmalle, Principal Architect
+// mschmalle at teotigraphix dot com
+////////////////////////////////////////////////////////////////////////////////
+
+package com.teotigraphix.bitwig.apiparser.core;
+
+import java.io.File;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.commons.io.FileUtils;
+
+/**
+ * The incremental build manifest kept in the output directory.
+ * <p>
+ * Holds an entry for each stub: the source it was rendered from (relative to
+ * the source directory), the hash of the source's content, the generator that
+ * rendered it and the hash of the stub. A source with several top-level
+ * classes has an entry for each of their stubs. A stub whose source hash and
+ * generator match the previous build does not need to be rendered again.
+ *
+ * @author Michael Schmalle
+ * @since 1.0
+ */
+public class BuildManifest {
+
+    public static final String FILE_NAME = ".apiparser-manifest";
+
+    /**
+     * Bump whenever a change to the writers alters the generated stubs.
+     */
+    public static final String GENERATOR_VERSION = "2";
+
+    private static final String HEADER = "# bitwig-api-parser manifest 1";
+
+    private static final String SEPARATOR = "\t";
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private File file;
+
+    private String generator;
+
+    private Map<String, Entry> previous = new HashMap<String, Entry>();
+
+    private Map<String, Entry> current = new ConcurrentHashMap<String, Entry>();
+
+    public File getFile() {
+        return file;
+    }
+
+    public String getGenerator() {
+        return generator;
+    }
+
+    public BuildManifest(File file, String generator) {
+        this.file = file;
+        this.generator = generator;
+    }
+
+    /**
+     * Loads the previous build's entries, a missing or unreadable manifest
+     * leaves it empty which results in a full build.
+     */
+    public void load() throws IOException {
+        previous.clear();
+        if (!file.isFile())
+            return;
+
+        List<String> lines = FileUtils.readLines(file, "UTF-8");
+        if (lines.isEmpty() || !lines.get(0).equals(HEADER))
+            return;
+
+        for (String line : lines.subList(1, lines.size())) {
+            String[] split = line.split(SEPARATOR);
+            if (split.length != 5)
+                continue;
+            previous.put(toKey(split[0], split[3]), new Entry(split[0], split[1], split[2],
+                    split[3], split[4]));
+        }
+    }
+
+    public void save() throws IOException {
+        List<String> lines = new ArrayList<String>();
+        lines.add(HEADER);
+        for (Entry entry : new TreeMap<String, Entry>(current).values()) {
+            lines.add(entry.source + SEPARATOR + entry.sourceHash + SEPARATOR + entry.generator
+                    + SEPARATOR + entry.stub + SEPARATOR + entry.stubHash);
+        }
+        FileUtils.writeLines(file, "UTF-8", lines, "\n");
+    }
+
+    /**
+     * Returns whether the stub was rendered from the same content of the
+     * source by the same generator in the previous build.
+     */
+    public boolean isUpToDate(String source, String stub, String sourceHash) {
+        Entry entry = previous.get(toKey(source, stub));
+        return entry != null && entry.sourceHash.equals(sourceHash)
+                && entry.generator.equals(generator);
+    }
+
+    /**
+     * Returns the stub file names the previous build produced for the
+     * source.
+     */
+    public List<String> getPreviousStubs(String source) {
+        List<String> result = new ArrayList<String>();
+        for (Entry entry : previous.values()) {
+            if (entry.source.equals(source))
+                result.add(entry.stub);
+        }
+        return result;
+    }
+
+    /**
+     * Carries the previous entry of an unchanged stub into this build,
+     * unless the stub was put into it already.
+     */
+    public void retain(String source, String stub) {
+        String key = toKey(source, stub);
+        Entry entry = previous.get(key);
+        if (entry != null && !current.containsKey(key))
+            current.put(key, entry);
+    }
+
+    /**
+     * Carries every previous entry not yet retained or put into this build,
+     * for a build that renders only some of the classes.
+     */
+    public void retainAll() {
+        for (Map.Entry<String, Entry> entry : previous.entrySet()) {
+            if (!current.containsKey(entry.getKey()))
+                current.put(entry.getKey(), entry.getValue());
+        }
+    }
+
+    public void put(String source, String sourceHash, String stub, String stubHash) {
+        current.put(toKey(source, stub), new Entry(source, sourceHash, generator, stub,
+                stubHash));
+    }
+
+    /**
+     * Returns the stub file names that were in the previous build but have
+     * not been retained or put into this one.
+     */
+    public List<String> getRemovedStubs() {
+        List<String> result = new ArrayList<String>();
+        for (Map.Entry<String, Entry> entry : previous.entrySet()) {
+            if (!current.containsKey(entry.getKey()))
+                result.add(entry.getValue().stub);
+        }
+        return result;
+    }
+
+    private static String toKey(String source, String stub) {
+        return source + SEPARATOR + stub;
+    }
+
+    public static String hash(byte[] data) {
+        return toHex(newDigest().digest(data));
+    }
+
+    static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    static String toHex(byte[] bytes) {
+        char[] chars = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            chars[i * 2] = HEX[(bytes[i] >> 4) & 0xF];
+            chars[i * 2 + 1] = HEX[bytes[i] & 0xF];
+        }
+        return new String(chars);
+    }
+
+    static class Entry {
+
+        private final String source;
+
+        private final String sourceHash;
+
+        private final String generator;
+
+        private final String stub;
+
+        private final String stubHash;
+
+        Entry(String source, String sourceHash, String generator, String stub, String stubHash) {
+            this.source = source;
+            this.sourceHash = sourceHash;
+            this.generator = generator;
+            this.stub = stub;
+            this.stubHash = stubHash;
+        }
+    }
+}
@@ -0,0 +1,178 @@
+////////////////////////////////////////////////////////////////////////////////
+// Copyright 2014 Michael Schmalle - Teoti Graphix, LLC
+// 
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+// 
+// http://www.apache.org/licenses/LICENSE-2.0 
+// 
+// Unless required by applicable law or agreed to in writing, software 
+// distributed under the License is distributed on an "AS IS" BASIS, 
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and 
+// limitations under the License
+// 
+// Author: Michael Schmalle, Principal Architect
+// mschmalle at teotigraphix dot com
+////////////////////////////////////////////////////////////////////////////////
+
+package com.teotigraphix.bitwig.apiparser.core;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.teotigraphix.bitwig.apiparser.writer.JsModelWriter;
+import com.thoughtworks.qdox.model.JavaClass;
+import com.thoughtworks.qdox.model.JavaMethod;
+
+/**
+ * Emits the stubs of all classes into the single
+ * {@link ParserConfig#getBundleFile() bundle file}.
+ * <p>
+ * Classes are written after the classes they implement, so each
+ * <code>X.prototype = new Y()</code> follows the definition of
+ * <code>Y</code>. The index file next to the bundle holds the UTF-8 byte
+ * offset and length of every class, see {@link #INDEX_SUFFIX}.
+ *
+ * @author Michael Schmalle
+ * @since 1.0
+ */
+class BundleEmitter implements IModelEmitter {
+
+    /**
+     * Appended to the bundle's file name for the index, which holds a header
+     * line followed by one <code>name offset length</code> line, tab
+     * separated, per class in bundle order.
+     */
+    static final String INDEX_SUFFIX = ".index";
+
+    private static final String INDEX_HEADER = "# bitwig-api-parser bundle index 1";
+
+    private ParserConfig config;
+
+    private PhaseTimer timer;
+
+    private APIParser parser;
+
+    private Map<String, JavaClass> classes;
+
+    BundleEmitter(ParserConfig config, PhaseTimer timer) {
+        this.config = config;
+        this.timer = timer;
+    }
+
+    @Override
+    public String getName() {
+        return PhaseMetrics.STUBS;
+    }
+
+    @Override
+    public void beginModel(APIParser parser) throws IOException {
+        this.parser = parser;
+        classes = new LinkedHashMap<String, JavaClass>();
+    }
+
+    @Override
+    public void visitClass(JavaClass javaClass) throws IOException {
+        classes.put(javaClass.getFullyQualifiedName(), javaClass);
+    }
+
+    @Override
+    public void visitMethod(JavaMethod method) throws IOException {
+    }
+
+    @Override
+    public void endModel() throws IOException {
+        List<JavaClass> ordered = new ArrayList<JavaClass>(classes.size());
+        Set<String> visited = new HashSet<String>();
+        for (JavaClass javaClass : classes.values()) {
+            order(javaClass, visited, ordered);
+        }
+
+        IOutputSink sink = config.getOutputSink();
+        File file = config.getBundleFile();
+        Map<String, long[]> index = new HashMap<String, long[]>();
+
+        long io = System.nanoTime();
+        CountingWriter out = new CountingWriter(sink.openWriter(file));
+        io = System.nanoTime() - io;
+        boolean rendered = false;
+        try {
+            JsModelWriter writer = new JsModelWriter(config.getVersion(), out);
+            writer.setCommentFormatter(parser.getCommentFormatter());
+            writer.setTypeResolver(config.getTypeResolver());
+            writer.setDocTags(parser.getDocTags());
+            writer.setSignatures(parser.getSignatures());
+
+            if (!ordered.isEmpty())
+                writer.writePackage(ordered.get(0).getPackage());
+            for (JavaClass javaClass : ordered) {
+                long offset = out.getCount();
+                writer.writeClass(javaClass);
+                index.put(javaClass.getFullyQualifiedName(), new long[] { offset,
+                        out.getCount() - offset });
+
+                timer.count(PhaseMetrics.COUNT_CLASSES, 1);
+                timer.count(PhaseMetrics.COUNT_METHODS, javaClass.getMethods().size());
+            }
+
+            long flush = System.nanoTime();
+            writer.flush();
+            io += System.nanoTime() - flush;
+            rendered = true;
+        } finally {
+            long close = System.nanoTime();
+            if (rendered)
+                out.close();
+            else
+                sink.abort(file);
+            io += System.nanoTime() - close;
+        }
+
+        long indexIo = System.nanoTime();
+        File indexFile = new File(file.getPath() + INDEX_SUFFIX);
+        Writer indexOut = sink.openWriter(indexFile);
+        rendered = false;
+        try {
+            indexOut.write(INDEX_HEADER + "\n");
+            for (JavaClass javaClass : ordered) {
+                long[] entry = index.get(javaClass.getFullyQualifiedName());
+                indexOut.write(javaClass.getName() + "\t" + entry[0] + "\t" + entry[1] + "\n");
+            }
+            rendered = true;
+        } finally {
+            if (rendered)
+                indexOut.close();
+            else
+                sink.abort(indexFile);
+        }
+        io += System.nanoTime() - indexIo;
+
+        timer.count(PhaseMetrics.COUNT_FILES, 2);
+        timer.count(PhaseMetrics.COUNT_BYTES, out.getCount());
+        timer.count(PhaseMetrics.COUNT_IO_NANOS, io);
+    }
+
+    /**
+     * Adds the class after the bundled classes it implements.
+     */
+    private void order(JavaClass javaClass, Set<String> visited, List<JavaClass> ordered) {
+        if (!visited.add(javaClass.getFullyQualifiedName()))
+            return;
+        for (JavaClass implemented : javaClass.getImplementedInterfaces()) {
+            JavaClass bundled = classes.get(implemented.getFullyQualifiedName());
+            if (bundled != null)
+                order(bundled, visited, ordered);
+        }
+        ordered.add(javaClass);
+    }
+}
@@ -0,0 +1,116 @@
+////////////////////////////////////////////////////////////////////////////////
+// Copyright 2014 Michael Schmalle - Teoti Graphix, LLC
+// 
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+// 
+// http://www.apache.org/licenses/LICENSE-2.0 
+// 
+// Unless required by applicable law or agreed to in writing, software 
+// distributed under the License is distributed on an "AS IS" BASIS, 
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and 
+// limitations under the License
+// 
+// Author: Michael Schmalle, Principal Architect
+// mschmalle at teotigraphix dot com
+////////////////////////////////////////////////////////////////////////////////
+
+package com.teotigraphix.bitwig.apiparser.core;
+
+import java.io.IOException;
+
+import com.teotigraphix.bitwig.apiparser.writer.ChangesWriter;
+import com.thoughtworks.qdox.model.JavaClass;
+import com.thoughtworks.qdox.model.JavaMethod;
+
+/**
+ * Emits the changes report to {@link ParserConfig#getChangesFile()}.
+ * <p>
+ * With a {@link ParserConfig#getPreviousConfig() previous release} its model
+ * is parsed by the first build and each class is compared as it is visited,
+ * see {@link APIDiff}. The previous classes are filtered by the config's
+ * includes and excludes like the current ones.
+ *
+ * @author Michael Schmalle
+ * @since 1.0
+ */
+class ChangesEmitter implements IModelEmitter {
+
+    private ParserConfig config;
+
+    private PhaseTimer timer;
+
+    private APIParser parser;
+
+    private ChangesWriter writer;
+
+    private APIDiff diff;
+
+    ChangesEmitter(ParserConfig config, PhaseTimer timer) {
+        this.config = config;
+        this.timer = timer;
+    }
+
+    @Override
+    public String getName() {
+        return PhaseMetrics.CHANGES;
+    }
+
+    @Override
+    public void beginModel(APIParser parser) throws IOException {
+        this.parser = parser;
+        writer = new ChangesWriter(parser);
+
+        diff = null;
+        APIParser previous = parser.getPrevious();
+        if (previous != null) {
+            diff = new APIDiff(APIParser.filterClasses(previous.getClasses(), config));
+            writer.setDiff(diff, previous.getConfig().getVersion());
+        }
+    }
+
+    @Override
+    public void visitClass(JavaClass javaClass) throws IOException {
+        writer.addClass(javaClass);
+        if (diff != null)
+            diff.compareClass(javaClass);
+    }
+
+    @Override
+    public void visitMethod(JavaMethod method) throws IOException {
+    }
+
+    @Override
+    public void endModel() throws IOException {
+        if (diff != null) {
+            diff.complete();
+            timer.count(PhaseMetrics.COUNT_CHANGED, diff.getChanges().size());
+        }
+
+        IOutputSink sink = config.getOutputSink();
+        long io = System.nanoTime();
+        CountingWriter out = new CountingWriter(sink.openWriter(config.getChangesFile()));
+        io = System.nanoTime() - io;
+        boolean rendered = false;
+        try {
+            writer.write(out);
+            rendered = true;
+        } finally {
+            long close = System.nanoTime();
+            if (rendered)
+                out.close();
+            else
+                sink.abort(config.getChangesFile());
+            io += System.nanoTime() - close;
+        }
+
+        for (Version version : parser.getVersions()) {
+            timer.count(PhaseMetrics.COUNT_METHODS, parser.getSinceMethods(version.get()).size());
+        }
+        timer.count(PhaseMetrics.COUNT_FILES, 1);
+        timer.count(PhaseMetrics.COUNT_BYTES, out.getCount());
+        timer.count(PhaseMetrics.COUNT_IO_NANOS, io);
+    }
+}
@@ -0,0 +1,90 @@
+////////////////////////////////////////////////////////////////////////////////
+// Copyright 2014 Michael Schmalle - Teoti Graphix, LLC
+// 
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+// 
+// http://www.apache.org/licenses/LICENSE-2.0 
+// 
+// Unless required by applicable law or agreed to in writing, software 
+// distributed under the License is distributed on an "AS IS" BASIS, 
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and 
+// limitations under the License
+// 
+// Author: Michael Schmalle, Principal Architect
+// mschmalle at teotigraphix dot com
+////////////////////////////////////////////////////////////////////////////////
+
+package com.teotigraphix.bitwig.apiparser.core;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import com.thoughtworks.qdox.model.JavaClass;
+
+/**
+ * Matches classes against the include and exclude patterns of a
+ * {@link ParserConfig}.
+ * <p>
+ * A pattern matches the simple or the qualified name of a class,
+ * <code>*</code> matches any characters and <code>?</code> a single one.
+ *
+ * @author Michael Schmalle
+ * @since 1.0
+ */
+class ClassFilter {
+
+    private List<Pattern> includes;
+
+    private List<Pattern> excludes;
+
+    ClassFilter(List<String> includes, List<String> excludes) {
+        this.includes = compile(includes);
+        this.excludes = compile(excludes);
+    }
+
+    /**
+     * Returns whether the class matches an include, any class does if there
+     * are none.
+     */
+    boolean isIncluded(JavaClass javaClass) {
+        return includes.isEmpty() || matches(includes, javaClass);
+    }
+
+    boolean isExcluded(JavaClass javaClass) {
+        return matches(excludes, javaClass);
+    }
+
+    private static boolean matches(List<Pattern> patterns, JavaClass javaClass) {
+        for (Pattern pattern : patterns) {
+            if (pattern.matcher(javaClass.getName()).matches()
+                    || pattern.matcher(javaClass.getFullyQualifiedName()).matches())
+                return true;
+        }
+        return false;
+    }
+
+    private static List<Pattern> compile(List<String> globs) {
+        List<Pattern> result = new ArrayList<Pattern>();
+        for (String glob : globs) {
+            StringBuilder sb = new StringBuilder();
+            int start = 0;
+            for (int i = 0; i < glob.length(); i++) {
+                char c = glob.charAt(i);
+                if (c == '*' || c == '?') {
+                    if (i > start)
+                        sb.append(Pattern.quote(glob.substring(start, i)));
+                    sb.append(c == '*' ? ".*" : ".");
+                    start = i + 1;
+                }
+            }
+            if (start < glob.length())
+                sb.append(Pattern.quote(glob.substring(start)));
+            result.add(Pattern.compile(sb.toString()));
+        }
+        return result;
+    }
+}
@@ -0,0 +1,302 @@
+////////////////////////////////////////////////////////////////////////////////
+// Copyright 2014 Michael Schmalle - Teoti Graphix, LLC
+// 
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+// 
+// http://www.apache.org/licenses/LICENSE-2.0 
+// 
+// Unless required by applicable law or agreed to in writing, software 
+// distributed under the License is distributed on an "AS IS" BASIS, 
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and 
+// limitations under the License
+// 
+// Author: Michael Schmalle, Principal Architect
+// mschmalle at teotigraphix dot com
+////////////////////////////////////////////////////////////////////////////////
+
+package com.teotigraphix.bitwig.apiparser.core;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+
+/**
+ * Writes a target only when its content changed, leaving identical files and
+ * their modification times alone.
+ * <p>
+ * The output is compared with the existing file while it streams in, a
+ * target is only written once the output differs. It is then written to a
+ * temporary file next to it, starting with the prefix that matched, and moved
+ * over the target atomically where the file system supports it; an aborted
+ * target only loses its temporary file. Counts the written, unchanged and
+ * deleted targets of the last build, the counts are taken when the build
+ * {@link #close() closes} or {@link #discard() discards} the sink.
+ *
+ * @author Michael Schmalle
+ * @since 1.0
+ */
+public class CommittingOutputSink implements IOutputSink {
+
+    private static final int BUFFER_SIZE = 16 * 1024;
+
+    private static final int MIN_BUFFER_SIZE = 1024;
+
+    // the compare buffer of each writing thread, larger writes are compared
+    // in chunks
+    private static final ThreadLocal<byte[]> compareBuffers = new ThreadLocal<byte[]>() {
+        @Override
+        protected byte[] initialValue() {
+            return new byte[BUFFER_SIZE];
+        }
+    };
+
+    private AtomicInteger written = new AtomicInteger();
+
+    private AtomicInteger unchanged = new AtomicInteger();
+
+    private AtomicInteger deleted = new AtomicInteger();
+
+    private volatile int lastWritten;
+
+    private volatile int lastUnchanged;
+
+    private volatile int lastDeleted;
+
+    private Map<File, CommitStream> open = new ConcurrentHashMap<File, CommitStream>();
+
+    /**
+     * The number of targets the last build wrote.
+     */
+    public int getWrittenCount() {
+        return lastWritten;
+    }
+
+    /**
+     * The number of targets the last build left alone.
+     */
+    public int getUnchangedCount() {
+        return lastUnchanged;
+    }
+
+    /**
+     * The number of targets the last build deleted.
+     */
+    public int getDeletedCount() {
+        return lastDeleted;
+    }
+
+    @Override
+    public Writer openWriter(File target) throws IOException {
+        return new BufferedWriter(new OutputStreamWriter(new CommitStream(target), "UTF-8"),
+                toBufferSize(target));
+    }
+
+    @Override
+    public OutputStream openStream(File target) throws IOException {
+        return new BufferedOutputStream(new CommitStream(target), toBufferSize(target));
+    }
+
+    /**
+     * Deletes the temporary file of the target, the target itself is not
+     * touched.
+     */
+    @Override
+    public void abort(File target) throws IOException {
+        CommitStream stream = open.get(target);
+        if (stream != null)
+            stream.abort();
+    }
+
+    @Override
+    public void delete(File target) throws IOException {
+        if (target.isFile() && target.delete())
+            deleted.incrementAndGet();
+    }
+
+    @Override
+    public boolean exists(File target) {
+        return target.isFile();
+    }
+
+    @Override
+    public boolean isPersistent() {
+        return true;
+    }
+
+    @Override
+    public Map<String, Long> getCounts() {
+        Map<String, Long> counts = new LinkedHashMap<String, Long>();
+        counts.put("written", (long)lastWritten);
+        counts.put("unchanged", (long)lastUnchanged);
+        counts.put("deleted", (long)lastDeleted);
+        return counts;
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (CommitStream stream : open.values()) {
+            stream.abort();
+        }
+        lastWritten = written.getAndSet(0);
+        lastUnchanged = unchanged.getAndSet(0);
+        lastDeleted = deleted.getAndSet(0);
+    }
+
+    @Override
+    public void discard() throws IOException {
+        close();
+    }
+
+    /**
+     * Sizes the buffers of a target after its previous output, most targets
+     * are far smaller than the full buffer size.
+     */
+    private static int toBufferSize(File target) {
+        long length = target.length();
+        if (length == 0)
+            return BUFFER_SIZE;
+        return (int)Math.max(MIN_BUFFER_SIZE, Math.min(BUFFER_SIZE, length));
+    }
+
+    @Override
+    public String toString() {
+        return "written=" + lastWritten + ", unchanged=" + lastUnchanged + ", deleted="
+                + lastDeleted;
+    }
+
+    /**
+     * Compares the output with the target until the first difference, then
+     * writes it to a temporary file.
+     */
+    class CommitStream extends OutputStream {
+
+        private File target;
+
+        private InputStream existing;
+
+        private long matched;
+
+        private File temp;
+
+        private OutputStream out;
+
+        CommitStream(File target) throws IOException {
+            this.target = target;
+            if (target.isFile())
+                existing = new BufferedInputStream(new FileInputStream(target),
+                        toBufferSize(target));
+            else
+                diverge();
+            open.put(target, this);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] { (byte)b }, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (out == null) {
+                byte[] compare = compareBuffers.get();
+                while (len > 0) {
+                    int chunk = Math.min(len, compare.length);
+                    if (IOUtils.read(existing, compare, 0, chunk) != chunk
+                            || !equals(b, off, compare, chunk))
+                        break;
+                    matched += chunk;
+                    off += chunk;
+                    len -= chunk;
+                }
+                if (len == 0)
+                    return;
+                diverge();
+            }
+            out.write(b, off, len);
+        }
+
+        @Override
+        public void close() throws IOException {
+            open.remove(target);
+            if (out == null) {
+                if (existing.read() == -1) {
+                    existing.close();
+                    unchanged.incrementAndGet();
+                    return;
+                }
+                // the target is longer
+                diverge();
+            }
+
+            out.close();
+            try {
+                Files.move(temp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            } finally {
+                FileUtils.deleteQuietly(temp);
+            }
+            written.incrementAndGet();
+        }
+
+        void abort() throws IOException {
+            open.remove(target);
+            IOUtils.closeQuietly(existing);
+            IOUtils.closeQuietly(out);
+            FileUtils.deleteQuietly(temp);
+        }
+
+        private boolean equals(byte[] b, int off, byte[] compare, int len) {
+            for (int i = 0; i < len; i++) {
+                if (b[off + i] != compare[i])
+                    return false;
+            }
+            return true;
+        }
+
+        /**
+         * Starts the temporary file with the prefix of the target the output
+         * matched so far.
+         */
+        private void diverge() throws IOException {
+            File directory = target.getAbsoluteFile().getParentFile();
+            FileUtils.forceMkdir(directory);
+            temp = File.createTempFile(target.getName(), ".tmp", directory);
+            out = new BufferedOutputStream(new FileOutputStream(temp), toBufferSize(target));
+
+            if (existing != null) {
+                existing.close();
+                if (matched > 0) {
+                    InputStream in = new FileInputStream(target);
+                    try {
+                        IOUtils.copyLarge(in, out, 0, matched);
+                    } finally {
+                        in.close();
+                    }
+                }
+            }
+        }
+    }
+}
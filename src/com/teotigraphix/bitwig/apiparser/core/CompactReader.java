@@ -0,0 +1,309 @@
+////////////////////////////////////////////////////////////////////////////////
+// Copyright 2014 Michael Schmalle - Teoti Graphix, LLC
+// 
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+// 
+// http://www.apache.org/licenses/LICENSE-2.0 
+// 
+// Unless required by applicable law or agreed to in writing, software 
+// distributed under the License is distributed on an "AS IS" BASIS, 
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and 
+// limitations under the License
+// 
+// Author: Michael Schmalle, Principal Architect
+// mschmalle at teotigraphix dot com
+////////////////////////////////////////////////////////////////////////////////
+
+package com.teotigraphix.bitwig.apiparser.core;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads the documents of the {@link CompactWriter} back.
+ * <p>
+ * {@link #copyTo(IValueWriter)} streams the document into another writer,
+ * a {@link JsonWriter} turns it into the JSON export it is equivalent to and
+ * a {@link CompactWriter} writes the same bytes again. {@link #read()} loads
+ * it into maps, lists, strings, longs and booleans.
+ *
+ * @author Michael Schmalle
+ * @since 1.0
+ */
+public class CompactReader implements Closeable {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private InputStream in;
+
+    private List<String> symbols = new ArrayList<String>();
+
+    /**
+     * @throws IOException the stream does not start with the magic bytes and
+     *         version of the {@link CompactWriter}
+     */
+    public CompactReader(InputStream in) throws IOException {
+        this.in = new BufferedInputStream(in);
+
+        byte[] magic = new byte[CompactWriter.MAGIC.length];
+        for (int i = 0; i < magic.length; i++) {
+            magic[i] = (byte)readByte();
+        }
+        if (!Arrays.equals(magic, CompactWriter.MAGIC))
+            throw new IOException("Not a compact model");
+        int version = readByte();
+        if (version != CompactWriter.FORMAT_VERSION)
+            throw new IOException("Unsupported compact model version " + version);
+    }
+
+    /**
+     * Writes the document to the writer token by token, the writer is left
+     * open.
+     *
+     * @throws IOException the document is truncated, malformed or followed
+     *         by more data
+     */
+    public void copyTo(IValueWriter writer) throws IOException {
+        // true for an open object, false for an open array
+        Deque<Boolean> open = new ArrayDeque<Boolean>();
+        boolean named = false;
+        do {
+            int token = readByte();
+            boolean inObject = !open.isEmpty() && open.peek();
+            if (named) {
+                if (token == CompactWriter.NAME || token == CompactWriter.END_OBJECT
+                        || token == CompactWriter.END_ARRAY)
+                    throw new IOException("Expected a value after a name");
+            } else if (inObject && token != CompactWriter.NAME
+                    && token != CompactWriter.END_OBJECT) {
+                throw new IOException("Expected a name in an object");
+            }
+            named = false;
+
+            switch (token) {
+                case CompactWriter.BEGIN_OBJECT:
+                    writer.beginObject();
+                    open.push(true);
+                    break;
+                case CompactWriter.END_OBJECT:
+                    if (!inObject)
+                        throw new IOException("Unexpected end of object");
+                    writer.endObject();
+                    open.pop();
+                    break;
+                case CompactWriter.BEGIN_ARRAY:
+                    writer.beginArray();
+                    open.push(false);
+                    break;
+                case CompactWriter.END_ARRAY:
+                    if (open.isEmpty() || inObject)
+                        throw new IOException("Unexpected end of array");
+                    writer.endArray();
+                    open.pop();
+                    break;
+                case CompactWriter.NAME:
+                    if (!inObject)
+                        throw new IOException("Unexpected name");
+                    writer.name(readSymbol());
+                    named = true;
+                    break;
+                case CompactWriter.STRING:
+                    writer.value(readString());
+                    break;
+                case CompactWriter.SYMBOL:
+                    writer.symbol(readSymbol());
+                    break;
+                case CompactWriter.LONG:
+                    long value = readVarint();
+                    writer.value((value >>> 1) ^ -(value & 1));
+                    break;
+                case CompactWriter.TRUE:
+                    writer.value(true);
+                    break;
+                case CompactWriter.FALSE:
+                    writer.value(false);
+                    break;
+                case CompactWriter.NULL:
+                    writer.nullValue();
+                    break;
+                default:
+                    throw new IOException("Unknown token " + token);
+            }
+        } while (!open.isEmpty() || named);
+
+        if (in.read() != -1)
+            throw new IOException("Data after the document");
+    }
+
+    /**
+     * Returns the document, objects as maps in the order of their names and
+     * arrays as lists.
+     */
+    public Object read() throws IOException {
+        TreeWriter writer = new TreeWriter();
+        copyTo(writer);
+        return writer.getRoot();
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    private int readByte() throws IOException {
+        int value = in.read();
+        if (value == -1)
+            throw new EOFException("Truncated compact model");
+        return value;
+    }
+
+    private long readVarint() throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = readByte();
+            value |= (long)(b & 0x7F) << shift;
+            if ((b & 0x80) == 0)
+                return value;
+        }
+        throw new IOException("Malformed varint");
+    }
+
+    private String readString() throws IOException {
+        long length = readVarint();
+        if (length < 0 || length > Integer.MAX_VALUE)
+            throw new IOException("Malformed string length");
+        byte[] bytes = new byte[(int)length];
+        int read = 0;
+        while (read < bytes.length) {
+            int count = in.read(bytes, read, bytes.length - read);
+            if (count == -1)
+                throw new EOFException("Truncated compact model");
+            read += count;
+        }
+        return new String(bytes, UTF_8);
+    }
+
+    private String readSymbol() throws IOException {
+        long index = readVarint();
+        if (index < symbols.size())
+            return symbols.get((int)index);
+        if (index > symbols.size())
+            throw new IOException("Unknown symbol " + index);
+        String symbol = readString();
+        symbols.add(symbol);
+        return symbol;
+    }
+
+    /**
+     * Builds the document in memory for {@link CompactReader#read()}.
+     */
+    static class TreeWriter implements IValueWriter {
+
+        private Deque<Object> open = new ArrayDeque<Object>();
+
+        private Deque<String> names = new ArrayDeque<String>();
+
+        private Object root;
+
+        Object getRoot() {
+            return root;
+        }
+
+        @Override
+        public TreeWriter beginObject() throws IOException {
+            Map<String, Object> object = new LinkedHashMap<String, Object>();
+            add(object);
+            open.push(object);
+            return this;
+        }
+
+        @Override
+        public TreeWriter endObject() throws IOException {
+            open.pop();
+            return this;
+        }
+
+        @Override
+        public TreeWriter beginArray() throws IOException {
+            List<Object> array = new ArrayList<Object>();
+            add(array);
+            open.push(array);
+            return this;
+        }
+
+        @Override
+        public TreeWriter endArray() throws IOException {
+            open.pop();
+            return this;
+        }
+
+        @Override
+        public TreeWriter name(String name) throws IOException {
+            names.push(name);
+            return this;
+        }
+
+        @Override
+        public TreeWriter value(String value) throws IOException {
+            add(value);
+            return this;
+        }
+
+        @Override
+        public TreeWriter symbol(String value) throws IOException {
+            add(value);
+            return this;
+        }
+
+        @Override
+        public TreeWriter value(long value) throws IOException {
+            add(value);
+            return this;
+        }
+
+        @Override
+        public TreeWriter value(boolean value) throws IOException {
+            add(value);
+            return this;
+        }
+
+        @Override
+        public TreeWriter nullValue() throws IOException {
+            add(null);
+            return this;
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+
+        @SuppressWarnings("unchecked")
+        private void add(Object value) {
+            if (open.isEmpty()) {
+                root = value;
+            } else if (open.peek() instanceof Map) {
+                ((Map<String, Object>)open.peek()).put(names.pop(), value);
+            } else {
+                ((List<Object>)open.peek()).add(value);
+            }
+        }
+    }
+}
@@ -0,0 +1,190 @@
+////////////////////////////////////////////////////////////////////////////////
+// Copyright 2014 Michael Schmalle - Teoti Graphix, LLC
+// 
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+// 
+// http://www.apache.org/licenses/LICENSE-2.0 
+// 
+// Unless required by applicable law or agreed to in writing, software 
+// distributed under the License is distributed on an "AS IS" BASIS, 
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and 
+// limitations under the License
+// 
+// Author: Michael Schmalle, Principal Architect
+// mschmalle at teotigraphix dot com
+////////////////////////////////////////////////////////////////////////////////
+
+package com.teotigraphix.bitwig.apiparser.core;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A streaming binary form of the {@link JsonWriter}'s documents, smaller and
+ * faster to load than the JSON they are equivalent to, read back by the
+ * {@link CompactReader}.
+ * <p>
+ * The stream starts with the {@link #MAGIC} bytes followed by the
+ * {@link #FORMAT_VERSION} byte, then holds one token byte per JSON token.
+ * Names and symbols are followed by a symbol reference, strings by the
+ * varint length of their UTF-8 bytes and the bytes, longs by their zigzag
+ * encoded varint. A symbol reference is the varint index of the symbol in
+ * the order symbols first appear; the index one past the symbols read so
+ * far introduces a new symbol, followed by its length and bytes like a
+ * string. Only names and {@link #symbol(String) symbols} are kept for
+ * reference, the table stays as small as the vocabulary of the model
+ * while comments and other text are written once in place.
+ *
+ * @author Michael Schmalle
+ * @since 1.0
+ */
+public class CompactWriter implements IValueWriter {
+
+    public static final byte[] MAGIC = { 'B', 'W', 'A', 'M' };
+
+    public static final int FORMAT_VERSION = 2;
+
+    public static final int BEGIN_OBJECT = 1;
+
+    public static final int END_OBJECT = 2;
+
+    public static final int BEGIN_ARRAY = 3;
+
+    public static final int END_ARRAY = 4;
+
+    public static final int NAME = 5;
+
+    public static final int STRING = 6;
+
+    public static final int LONG = 7;
+
+    public static final int TRUE = 8;
+
+    public static final int FALSE = 9;
+
+    public static final int NULL = 10;
+
+    public static final int SYMBOL = 11;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private OutputStream out;
+
+    private Map<String, Integer> symbols = new HashMap<String, Integer>();
+
+    public CompactWriter(OutputStream out) throws IOException {
+        this.out = out;
+        out.write(MAGIC);
+        out.write(FORMAT_VERSION);
+    }
+
+    @Override
+    public CompactWriter beginObject() throws IOException {
+        out.write(BEGIN_OBJECT);
+        return this;
+    }
+
+    @Override
+    public CompactWriter endObject() throws IOException {
+        out.write(END_OBJECT);
+        return this;
+    }
+
+    @Override
+    public CompactWriter beginArray() throws IOException {
+        out.write(BEGIN_ARRAY);
+        return this;
+    }
+
+    @Override
+    public CompactWriter endArray() throws IOException {
+        out.write(END_ARRAY);
+        return this;
+    }
+
+    @Override
+    public CompactWriter name(String name) throws IOException {
+        out.write(NAME);
+        symbolReference(name);
+        return this;
+    }
+
+    @Override
+    public CompactWriter value(String value) throws IOException {
+        if (value == null)
+            return nullValue();
+        out.write(STRING);
+        string(value);
+        return this;
+    }
+
+    @Override
+    public CompactWriter symbol(String value) throws IOException {
+        if (value == null)
+            return nullValue();
+        out.write(SYMBOL);
+        symbolReference(value);
+        return this;
+    }
+
+    @Override
+    public CompactWriter value(long value) throws IOException {
+        out.write(LONG);
+        varint((value << 1) ^ (value >> 63));
+        return this;
+    }
+
+    @Override
+    public CompactWriter value(boolean value) throws IOException {
+        out.write(value ? TRUE : FALSE);
+        return this;
+    }
+
+    @Override
+    public CompactWriter nullValue() throws IOException {
+        out.write(NULL);
+        return this;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+
+    private void symbolReference(String value) throws IOException {
+        Integer index = symbols.get(value);
+        if (index != null) {
+            varint(index);
+            return;
+        }
+
+        varint(symbols.size());
+        symbols.put(value, symbols.size());
+        string(value);
+    }
+
+    private void string(String value) throws IOException {
+        byte[] bytes = value.getBytes(UTF_8);
+        varint(bytes.length);
+        out.write(bytes);
+    }
+
+    private void varint(long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int)((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int)value);
+    }
+}
@@ -0,0 +1,104 @@
+////////////////////////////////////////////////////////////////////////////////
+// Copyright 2014 Michael Schmalle - Teoti Graphix, LLC
+// 
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+// 
+// http://www.apache.org/licenses/LICENSE-2.0 
+// 
+// Unless required by applicable law or agreed to in writing, software 
+// distributed under the License is distributed on an "AS IS" BASIS, 
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and 
+// limitations under the License
+// 
+// Author: Michael Schmalle, Principal Architect
+// mschmalle at teotigraphix dot com
+////////////////////////////////////////////////////////////////////////////////
+
+package com.teotigraphix.bitwig.apiparser.core;
+
+import java.io.IOException;
+
+import com.teotigraphix.bitwig.apiparser.writer.TsModelWriter;
+import com.thoughtworks.qdox.model.JavaClass;
+import com.thoughtworks.qdox.model.JavaMethod;
+
+/**
+ * Emits the TypeScript declarations of all classes to
+ * {@link ParserConfig#getDeclarationsFile()}, streaming each class as the
+ * walk visits it.
+ *
+ * @author Michael Schmalle
+ * @since 1.0
+ */
+class DeclarationsEmitter implements IModelEmitter {
+
+    private ParserConfig config;
+
+    private PhaseTimer timer;
+
+    private CountingWriter out;
+
+    private TsModelWriter writer;
+
+    private long io;
+
+    DeclarationsEmitter(ParserConfig config, PhaseTimer timer) {
+        this.config = config;
+        this.timer = timer;
+    }
+
+    @Override
+    public String getName() {
+        return PhaseMetrics.DECLARATIONS;
+    }
+
+    @Override
+    public void beginModel(APIParser parser) throws IOException {
+        io = System.nanoTime();
+        out = new CountingWriter(config.getOutputSink().openWriter(config.getDeclarationsFile()));
+        io = System.nanoTime() - io;
+
+        writer = new TsModelWriter(config.getVersion(), out);
+        writer.setCommentFormatter(parser.getCommentFormatter());
+        writer.setTypeResolver(config.getTypeResolver());
+        writer.setDocTags(parser.getDocTags());
+        writer.setSignatures(parser.getSignatures());
+        writer.writePackage(null);
+    }
+
+    @Override
+    public void visitClass(JavaClass javaClass) throws IOException {
+        writer.writeClass(javaClass);
+        timer.count(PhaseMetrics.COUNT_CLASSES, 1);
+        timer.count(PhaseMetrics.COUNT_METHODS, javaClass.getMethods().size());
+    }
+
+    @Override
+    public void visitMethod(JavaMethod method) throws IOException {
+    }
+
+    @Override
+    public void endModel() throws IOException {
+        boolean rendered = false;
+        try {
+            long flush = System.nanoTime();
+            writer.flush();
+            io += System.nanoTime() - flush;
+            rendered = true;
+        } finally {
+            long close = System.nanoTime();
+            if (rendered)
+                out.close();
+            else
+                config.getOutputSink().abort(config.getDeclarationsFile());
+            io += System.nanoTime() - close;
+        }
+
+        timer.count(PhaseMetrics.COUNT_FILES, 1);
+        timer.count(PhaseMetrics.COUNT_BYTES, out.getCount());
+        timer.count(PhaseMetrics.COUNT_IO_NANOS, io);
+    }
+}
@@ -0,0 +1,170 @@
+////////////////////////////////////////////////////////////////////////////////
+// Copyright 2014 Michael Schmalle - Teoti Graphix, LLC
+// 
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+// 
+// http://www.apache.org/licenses/LICENSE-2.0 
+// 
+// Unless required by applicable law or agreed to in writing, software 
+// distributed under the License is distributed on an "AS IS" BASIS, 
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and 
+// limitations under the License
+// 
+// Author: Michael Schmalle, Principal Architect
+// mschmalle at teotigraphix dot com
+////////////////////////////////////////////////////////////////////////////////
+
+package com.teotigraphix.bitwig.apiparser.core;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.teotigraphix.bitwig.apiparser.writer.TypeResolver;
+import com.thoughtworks.qdox.model.DocletTag;
+import com.thoughtworks.qdox.model.JavaClass;
+import com.thoughtworks.qdox.model.JavaMethod;
+import com.thoughtworks.qdox.model.JavaParameter;
+import com.thoughtworks.qdox.model.impl.DefaultDocletTag;
+
+/**
+ * Normalizes the doc tags of methods for the writers.
+ * <p>
+ * A method's tags are normalized the first time they are asked for and
+ * remembered, the qdox model is left as parsed. Normalized tags hold a
+ * <code>@param</code> for every parameter, a <code>@return</code> for a non
+ * void method and a <code>@throws</code> for every exception, followed by
+ * the <code>@since</code> tag. Only the methods of the first top-level class
+ * of a source are normalized, the methods of nested and secondary classes
+ * keep their tags as parsed. Thread safe.
+ *
+ * @author Michael Schmalle
+ * @since 1.0
+ */
+public class DocTagNormalizer {
+
+    private ConcurrentMap<JavaMethod, List<DocletTag>> normalized = new ConcurrentHashMap<JavaMethod, List<DocletTag>>();
+
+    private TypeResolver typeResolver;
+
+    /**
+     * @param typeResolver the resolver the names of synthesized
+     *        <code>@throws</code> tags are converted by
+     */
+    public DocTagNormalizer(TypeResolver typeResolver) {
+        this.typeResolver = typeResolver;
+    }
+
+    /**
+     * Returns the normalized tags of the method.
+     */
+    public List<DocletTag> getTags(JavaMethod method) {
+        List<DocletTag> result = normalized.get(method);
+        if (result == null) {
+            result = Collections.unmodifiableList(normalize(method));
+            List<DocletTag> previous = normalized.putIfAbsent(method, result);
+            if (previous != null)
+                result = previous;
+        }
+        return result;
+    }
+
+    /**
+     * Forgets the tags of the class's methods, qdox methods are equal by
+     * signature so a refreshed class invalidates the methods it replaced.
+     */
+    public void invalidate(JavaClass javaClass) {
+        for (JavaMethod method : javaClass.getMethods()) {
+            normalized.remove(method);
+        }
+    }
+
+    private List<DocletTag> normalize(JavaMethod method) {
+        if (!isNormalized(method.getDeclaringClass()))
+            return method.getTags() != null ? method.getTags() : new ArrayList<DocletTag>();
+
+        List<DocletTag> list = new ArrayList<DocletTag>();
+        normalizeParameters(method, list);
+        normalizeReturns(method, list);
+        normalizeThrows(method, list);
+        normalizeSince(method, list);
+        return list;
+    }
+
+    private static boolean isNormalized(JavaClass javaClass) {
+        List<JavaClass> classes = javaClass.getSource().getClasses();
+        return !classes.isEmpty() && classes.get(0).equals(javaClass);
+    }
+
+    private static void normalizeParameters(JavaMethod method, List<DocletTag> list) {
+        List<JavaParameter> parameters = method.getParameters();
+        List<DocletTag> params = getTagsByName(method, IWriterConstants.TAG_PARAM);
+
+        if (parameters.size() != params.size()) {
+            for (JavaParameter parameter : parameters) {
+                list.add(new DefaultDocletTag(IWriterConstants.TAG_PARAM, parameter.getName()));
+            }
+        } else if (params.size() > 0) {
+            list.addAll(params);
+        }
+    }
+
+    private static void normalizeReturns(JavaMethod method, List<DocletTag> list) {
+        JavaClass returns = method.getReturns();
+        String qName = returns.getFullyQualifiedName();
+        DocletTag returnTag = getTagByName(method, IWriterConstants.TAG_RETURN);
+
+        if (returnTag == null && !qName.equals("void")) {
+            returnTag = new DefaultDocletTag(IWriterConstants.TAG_RETURN, "");
+        }
+        if (returnTag != null)
+            list.add(returnTag);
+    }
+
+    private void normalizeThrows(JavaMethod method, List<DocletTag> list) {
+        List<JavaClass> exceptions = method.getExceptions();
+        List<DocletTag> throwz = getTagsByName(method, IWriterConstants.TAG_THROWS);
+
+        if (exceptions.size() != throwz.size()) {
+            for (JavaClass javaClass : exceptions) {
+                list.add(new DefaultDocletTag(IWriterConstants.TAG_THROWS,
+                        typeResolver.toSimpleName(javaClass.getName())));
+            }
+        } else if (throwz.size() > 0) {
+            list.addAll(throwz);
+        }
+    }
+
+    private static void normalizeSince(JavaMethod method, List<DocletTag> list) {
+        DocletTag tag = getTagByName(method, IWriterConstants.TAG_SINCE);
+        if (tag != null)
+            list.add(tag);
+    }
+
+    // qdox leaves the tags of some methods null, its own lookups fail on them
+    private static List<DocletTag> getTagsByName(JavaMethod method, String name) {
+        List<DocletTag> result = new ArrayList<DocletTag>();
+        if (method.getTags() != null) {
+            for (DocletTag tag : method.getTags()) {
+                if (tag.getName().equals(name))
+                    result.add(tag);
+            }
+        }
+        return result;
+    }
+
+    private static DocletTag getTagByName(JavaMethod method, String name) {
+        if (method.getTags() != null) {
+            for (DocletTag tag : method.getTags()) {
+                if (tag.getName().equals(name))
+                    return tag;
+            }
+        }
+        return null;
+    }
+}
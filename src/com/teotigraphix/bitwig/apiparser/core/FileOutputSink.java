@@ -0,0 +1,127 @@
+////////////////////////////////////////////////////////////////////////////////
+// Copyright 2014 Michael Schmalle - Teoti Graphix, LLC
+// 
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+// 
+// http://www.apache.org/licenses/LICENSE-2.0 
+// 
+// Unless required by applicable law or agreed to in writing, software 
+// distributed under the License is distributed on an "AS IS" BASIS, 
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and 
+// limitations under the License
+// 
+// Author: Michael Schmalle, Principal Architect
+// mschmalle at teotigraphix dot com
+////////////////////////////////////////////////////////////////////////////////
+
+package com.teotigraphix.bitwig.apiparser.core;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+
+/**
+ * Streams each target through a buffered UTF-8 writer or stream straight to
+ * disk, an aborted target is deleted as its previous content is already
+ * gone.
+ *
+ * @author Michael Schmalle
+ * @since 1.0
+ */
+public class FileOutputSink implements IOutputSink {
+
+    private static final int BUFFER_SIZE = 16 * 1024;
+
+    private Map<File, OutputStream> open = new ConcurrentHashMap<File, OutputStream>();
+
+    @Override
+    public Writer openWriter(File target) throws IOException {
+        return new BufferedWriter(new OutputStreamWriter(new TargetStream(target), "UTF-8"),
+                BUFFER_SIZE);
+    }
+
+    @Override
+    public OutputStream openStream(File target) throws IOException {
+        return new BufferedOutputStream(new TargetStream(target), BUFFER_SIZE);
+    }
+
+    @Override
+    public void abort(File target) throws IOException {
+        OutputStream stream = open.remove(target);
+        if (stream != null) {
+            IOUtils.closeQuietly(stream);
+            FileUtils.deleteQuietly(target);
+        }
+    }
+
+    @Override
+    public void delete(File target) throws IOException {
+        FileUtils.deleteQuietly(target);
+    }
+
+    @Override
+    public boolean exists(File target) {
+        return target.isFile();
+    }
+
+    @Override
+    public boolean isPersistent() {
+        return true;
+    }
+
+    @Override
+    public Map<String, Long> getCounts() {
+        return Collections.emptyMap();
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (File target : open.keySet()) {
+            abort(target);
+        }
+    }
+
+    @Override
+    public void discard() throws IOException {
+        close();
+    }
+
+    /**
+     * Writes the target, known to the sink until it is closed.
+     */
+    class TargetStream extends FilterOutputStream {
+
+        private File target;
+
+        TargetStream(File target) throws IOException {
+            super(FileUtils.openOutputStream(target));
+            this.target = target;
+            open.put(target, out);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+        }
+
+        @Override
+        public void close() throws IOException {
+            open.remove(target);
+            out.close();
+        }
+    }
+}
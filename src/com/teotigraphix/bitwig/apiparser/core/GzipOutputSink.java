@@ -0,0 +1,117 @@
+////////////////////////////////////////////////////////////////////////////////
+// Copyright 2014 Michael Schmalle - Teoti Graphix, LLC
+// 
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+// 
+// http://www.apache.org/licenses/LICENSE-2.0 
+// 
+// Unless required by applicable law or agreed to in writing, software 
+// distributed under the License is distributed on an "AS IS" BASIS, 
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and 
+// limitations under the License
+// 
+// Author: Michael Schmalle, Principal Architect
+// mschmalle at teotigraphix dot com
+////////////////////////////////////////////////////////////////////////////////
+
+package com.teotigraphix.bitwig.apiparser.core;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Compresses each target with gzip into <code>target.gz</code> of another
+ * sink, a {@link CommittingOutputSink} unless given.
+ * <p>
+ * The gzip header is written without a modification time, so unchanged
+ * output compresses to the same bytes and is left alone by a committing
+ * sink.
+ *
+ * @author Michael Schmalle
+ * @since 1.0
+ */
+public class GzipOutputSink implements IOutputSink {
+
+    public static final String EXTENSION = ".gz";
+
+    private static final int BUFFER_SIZE = 8 * 1024;
+
+    private IOutputSink sink;
+
+    public GzipOutputSink() {
+        this(new CommittingOutputSink());
+    }
+
+    public GzipOutputSink(IOutputSink sink) {
+        this.sink = sink;
+    }
+
+    /**
+     * The sink the compressed targets are written to.
+     */
+    public IOutputSink getSink() {
+        return sink;
+    }
+
+    @Override
+    public Writer openWriter(File target) throws IOException {
+        return new OutputStreamWriter(openStream(target), "UTF-8");
+    }
+
+    @Override
+    public OutputStream openStream(File target) throws IOException {
+        return new GZIPOutputStream(sink.openStream(toCompressed(target)), BUFFER_SIZE);
+    }
+
+    @Override
+    public void abort(File target) throws IOException {
+        sink.abort(toCompressed(target));
+    }
+
+    @Override
+    public void delete(File target) throws IOException {
+        sink.delete(toCompressed(target));
+    }
+
+    @Override
+    public boolean exists(File target) {
+        return sink.exists(toCompressed(target));
+    }
+
+    @Override
+    public boolean isPersistent() {
+        return sink.isPersistent();
+    }
+
+    @Override
+    public Map<String, Long> getCounts() {
+        return sink.getCounts();
+    }
+
+    @Override
+    public void close() throws IOException {
+        sink.close();
+    }
+
+    @Override
+    public void discard() throws IOException {
+        sink.discard();
+    }
+
+    @Override
+    public String toString() {
+        return "gzip " + sink;
+    }
+
+    private static File toCompressed(File target) {
+        return new File(target.getPath() + EXTENSION);
+    }
+}
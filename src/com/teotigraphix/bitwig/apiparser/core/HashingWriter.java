@@ -0,0 +1,86 @@
+////////////////////////////////////////////////////////////////////////////////
+// Copyright 2014 Michael Schmalle - Teoti Graphix, LLC
+// 
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+// 
+// http://www.apache.org/licenses/LICENSE-2.0 
+// 
+// Unless required by applicable law or agreed to in writing, software 
+// distributed under the License is distributed on an "AS IS" BASIS, 
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and 
+// limitations under the License
+// 
+// Author: Michael Schmalle, Principal Architect
+// mschmalle at teotigraphix dot com
+////////////////////////////////////////////////////////////////////////////////
+
+package com.teotigraphix.bitwig.apiparser.core;
+
+import java.io.FilterWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.security.MessageDigest;
+
+/**
+ * Passes characters through while hashing them for the {@link BuildManifest}.
+ *
+ * @author Michael Schmalle
+ * @since 1.0
+ */
+class HashingWriter extends FilterWriter {
+
+    private MessageDigest digest = BuildManifest.newDigest();
+
+    private byte[] scratch = new byte[1024];
+
+    HashingWriter(Writer out) {
+        super(out);
+    }
+
+    /**
+     * Returns the hash of the characters written so far.
+     */
+    String getHash() {
+        return BuildManifest.toHex(digest.digest());
+    }
+
+    @Override
+    public void write(int c) throws IOException {
+        digest.update((byte)(c >> 8));
+        digest.update((byte)c);
+        out.write(c);
+    }
+
+    @Override
+    public void write(char[] cbuf, int off, int len) throws IOException {
+        for (int i = 0; i < len;) {
+            int count = Math.min(len - i, scratch.length / 2);
+            for (int j = 0; j < count; j++) {
+                char c = cbuf[off + i + j];
+                scratch[j * 2] = (byte)(c >> 8);
+                scratch[j * 2 + 1] = (byte)c;
+            }
+            digest.update(scratch, 0, count * 2);
+            i += count;
+        }
+        out.write(cbuf, off, len);
+    }
+
+    @Override
+    public void write(String str, int off, int len) throws IOException {
+        for (int i = 0; i < len;) {
+            int count = Math.min(len - i, scratch.length / 2);
+            for (int j = 0; j < count; j++) {
+                char c = str.charAt(off + i + j);
+                scratch[j * 2] = (byte)(c >> 8);
+                scratch[j * 2 + 1] = (byte)c;
+            }
+            digest.update(scratch, 0, count * 2);
+            i += count;
+        }
+        out.write(str, off, len);
+    }
+}
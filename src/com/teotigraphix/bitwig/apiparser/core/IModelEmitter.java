@@ -0,0 +1,51 @@
+////////////////////////////////////////////////////////////////////////////////
+// Copyright 2014 Michael Schmalle - Teoti Graphix, LLC
+// 
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+// 
+// http://www.apache.org/licenses/LICENSE-2.0 
+// 
+// Unless required by applicable law or agreed to in writing, software 
+// distributed under the License is distributed on an "AS IS" BASIS, 
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and 
+// limitations under the License
+// 
+// Author: Michael Schmalle, Principal Architect
+// mschmalle at teotigraphix dot com
+////////////////////////////////////////////////////////////////////////////////
+
+package com.teotigraphix.bitwig.apiparser.core;
+
+import java.io.IOException;
+
+import com.thoughtworks.qdox.model.JavaClass;
+import com.thoughtworks.qdox.model.JavaMethod;
+
+/**
+ * An output of {@link APIParser#build()}.
+ * <p>
+ * A build walks the analyzed model once, every emitter receives each
+ * top-level class in name order followed by that class's methods. Register
+ * additional emitters with {@link ParserConfig#addEmitter(IModelEmitter)}.
+ *
+ * @author Michael Schmalle
+ * @since 1.0
+ */
+public interface IModelEmitter {
+
+    /**
+     * The name the emitter's {@link PhaseMetrics} are reported under.
+     */
+    String getName();
+
+    void beginModel(APIParser parser) throws IOException;
+
+    void visitClass(JavaClass javaClass) throws IOException;
+
+    void visitMethod(JavaMethod method) throws IOException;
+
+    void endModel() throws IOException;
+}
@@ -0,0 +1,94 @@
+////////////////////////////////////////////////////////////////////////////////
+// Copyright 2014 Michael Schmalle - Teoti Graphix, LLC
+// 
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+// 
+// http://www.apache.org/licenses/LICENSE-2.0 
+// 
+// Unless required by applicable law or agreed to in writing, software 
+// distributed under the License is distributed on an "AS IS" BASIS, 
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and 
+// limitations under the License
+// 
+// Author: Michael Schmalle, Principal Architect
+// mschmalle at teotigraphix dot com
+////////////////////////////////////////////////////////////////////////////////
+
+package com.teotigraphix.bitwig.apiparser.core;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.util.Map;
+
+/**
+ * Receives the generated output of an {@link APIParser} build.
+ * <p>
+ * Writers render straight into the {@link Writer} returned by
+ * {@link #openWriter(File)}, or the {@link OutputStream} returned by
+ * {@link #openStream(File)} for binary targets; the caller closes it once
+ * the target is complete, or {@link #abort(File) aborts} the target instead
+ * when rendering it failed.
+ *
+ * @author Michael Schmalle
+ * @since 1.0
+ */
+public interface IOutputSink {
+
+    /**
+     * Opens a UTF-8 writer for the target, replacing any previous content.
+     */
+    Writer openWriter(File target) throws IOException;
+
+    /**
+     * Opens a stream for the binary target, replacing any previous content.
+     */
+    OutputStream openStream(File target) throws IOException;
+
+    /**
+     * Discards the output of a target that was opened but not closed, the
+     * target keeps its previous content where the sink can leave it alone.
+     * The writer or stream of the target is not closed afterwards.
+     */
+    void abort(File target) throws IOException;
+
+    /**
+     * Removes a target that is no longer generated.
+     */
+    void delete(File target) throws IOException;
+
+    /**
+     * Returns whether the sink holds the target from a previous build.
+     */
+    boolean exists(File target);
+
+    /**
+     * Returns whether targets stay in the sink from one build to the next,
+     * so a build may leave unchanged targets alone. A sink that is written
+     * whole by every build is not persistent, every target goes into each
+     * build and partial builds are refused.
+     */
+    boolean isPersistent();
+
+    /**
+     * Returns the counts the sink reports in the build metrics, keyed by
+     * name; empty if it keeps none.
+     */
+    Map<String, Long> getCounts();
+
+    /**
+     * Called once the build has written all of its targets, targets still
+     * open are aborted.
+     */
+    void close() throws IOException;
+
+    /**
+     * Called instead of {@link #close()} when the build failed, targets still
+     * open are aborted and a sink written whole keeps its previous output.
+     */
+    void discard() throws IOException;
+}
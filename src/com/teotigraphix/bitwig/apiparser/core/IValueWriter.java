@@ -0,0 +1,65 @@
+////////////////////////////////////////////////////////////////////////////////
+// Copyright 2014 Michael Schmalle - Teoti Graphix, LLC
+// 
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+// 
+// http://www.apache.org/licenses/LICENSE-2.0 
+// 
+// Unless required by applicable law or agreed to in writing, software 
+// distributed under the License is distributed on an "AS IS" BASIS, 
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and 
+// limitations under the License
+// 
+// Author: Michael Schmalle, Principal Architect
+// mschmalle at teotigraphix dot com
+////////////////////////////////////////////////////////////////////////////////
+
+package com.teotigraphix.bitwig.apiparser.core;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+
+/**
+ * A streaming writer of nested objects, arrays and values, implemented by
+ * the {@link JsonWriter} and the binary {@link CompactWriter}.
+ * <p>
+ * An object holds a {@link #name(String)} before each of its values.
+ *
+ * @author Michael Schmalle
+ * @since 1.0
+ */
+public interface IValueWriter extends Flushable, Closeable {
+
+    IValueWriter beginObject() throws IOException;
+
+    IValueWriter endObject() throws IOException;
+
+    IValueWriter beginArray() throws IOException;
+
+    IValueWriter endArray() throws IOException;
+
+    IValueWriter name(String name) throws IOException;
+
+    /**
+     * Writes the string, a <code>null</code> value writes a
+     * {@link #nullValue()}.
+     */
+    IValueWriter value(String value) throws IOException;
+
+    /**
+     * Writes a string that recurs throughout the document, such as a name or
+     * a type, like {@link #value(String)}; the {@link CompactWriter} writes
+     * each symbol once and refers to it afterwards.
+     */
+    IValueWriter symbol(String value) throws IOException;
+
+    IValueWriter value(long value) throws IOException;
+
+    IValueWriter value(boolean value) throws IOException;
+
+    IValueWriter nullValue() throws IOException;
+}
@@ -35,5 +35,7 @@ public interface IWriterConstants {
 
     public static final String JS = ".js";
 
+    public static final String JAVA = ".java";
+
     public static final String NL = "\n";
 }
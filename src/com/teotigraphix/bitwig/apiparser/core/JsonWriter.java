@@ -0,0 +1,196 @@
+////////////////////////////////////////////////////////////////////////////////
+// Copyright 2014 Michael Schmalle - Teoti Graphix, LLC
+// 
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+// 
+// http://www.apache.org/licenses/LICENSE-2.0 
+// 
+// Unless required by applicable law or agreed to in writing, software 
+// distributed under the License is distributed on an "AS IS" BASIS, 
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and 
+// limitations under the License
+// 
+// Author: Michael Schmalle, Principal Architect
+// mschmalle at teotigraphix dot com
+////////////////////////////////////////////////////////////////////////////////
+
+package com.teotigraphix.bitwig.apiparser.core;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * A minimal streaming JSON generator, values are written to the target as
+ * they are produced so memory stays flat regardless of the document size.
+ *
+ * @author Michael Schmalle
+ * @since 1.0
+ */
+public class JsonWriter implements IValueWriter {
+
+    private Writer out;
+
+    private String indent = "";
+
+    // one entry per open object or array, true until its first value
+    private Deque<Boolean> scopes = new ArrayDeque<Boolean>();
+
+    private boolean afterName;
+
+    public JsonWriter(Writer out) {
+        this.out = out;
+    }
+
+    /**
+     * Pretty prints with the indent, the default <code>""</code> writes
+     * compact output.
+     */
+    public void setIndent(String indent) {
+        this.indent = indent;
+    }
+
+    @Override
+    public JsonWriter beginObject() throws IOException {
+        beforeValue();
+        out.write('{');
+        scopes.push(Boolean.TRUE);
+        return this;
+    }
+
+    @Override
+    public JsonWriter endObject() throws IOException {
+        return close('}');
+    }
+
+    @Override
+    public JsonWriter beginArray() throws IOException {
+        beforeValue();
+        out.write('[');
+        scopes.push(Boolean.TRUE);
+        return this;
+    }
+
+    @Override
+    public JsonWriter endArray() throws IOException {
+        return close(']');
+    }
+
+    @Override
+    public JsonWriter name(String name) throws IOException {
+        beforeValue();
+        string(name);
+        out.write(indent.length() > 0 ? ": " : ":");
+        afterName = true;
+        return this;
+    }
+
+    @Override
+    public JsonWriter value(String value) throws IOException {
+        if (value == null)
+            return nullValue();
+        beforeValue();
+        string(value);
+        return this;
+    }
+
+    @Override
+    public JsonWriter symbol(String value) throws IOException {
+        return value(value);
+    }
+
+    @Override
+    public JsonWriter value(long value) throws IOException {
+        beforeValue();
+        out.write(Long.toString(value));
+        return this;
+    }
+
+    @Override
+    public JsonWriter value(boolean value) throws IOException {
+        beforeValue();
+        out.write(value ? "true" : "false");
+        return this;
+    }
+
+    @Override
+    public JsonWriter nullValue() throws IOException {
+        beforeValue();
+        out.write("null");
+        return this;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+
+    private JsonWriter close(char c) throws IOException {
+        boolean empty = scopes.pop();
+        if (!empty)
+            newline();
+        out.write(c);
+        return this;
+    }
+
+    private void beforeValue() throws IOException {
+        if (afterName) {
+            afterName = false;
+            return;
+        }
+        if (scopes.isEmpty())
+            return;
+        if (!scopes.peek())
+            out.write(',');
+        scopes.pop();
+        scopes.push(Boolean.FALSE);
+        newline();
+    }
+
+    private void newline() throws IOException {
+        if (indent.length() == 0)
+            return;
+        out.write('\n');
+        for (int i = 0; i < scopes.size(); i++)
+            out.write(indent);
+    }
+
+    private void string(String value) throws IOException {
+        out.write('"');
+        int start = 0;
+        int length = value.length();
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            String replacement = null;
+            if (c == '"') {
+                replacement = "\\\"";
+            } else if (c == '\\') {
+                replacement = "\\\\";
+            } else if (c == '\n') {
+                replacement = "\\n";
+            } else if (c == '\r') {
+                replacement = "\\r";
+            } else if (c == '\t') {
+                replacement = "\\t";
+            } else if (c < 0x20 || c == 0x2028 || c == 0x2029) {
+                replacement = String.format("\\u%04x", (int)c);
+            }
+            if (replacement != null) {
+                out.write(value, start, i - start);
+                out.write(replacement);
+                start = i + 1;
+            }
+        }
+        out.write(value, start, length - start);
+        out.write('"');
+    }
+}
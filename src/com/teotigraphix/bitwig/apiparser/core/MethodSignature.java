@@ -0,0 +1,98 @@
+////////////////////////////////////////////////////////////////////////////////
+// Copyright 2014 Michael Schmalle - Teoti Graphix, LLC
+// 
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+// 
+// http://www.apache.org/licenses/LICENSE-2.0 
+// 
+// Unless required by applicable law or agreed to in writing, software 
+// distributed under the License is distributed on an "AS IS" BASIS, 
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and 
+// limitations under the License
+// 
+// Author: Michael Schmalle, Principal Architect
+// mschmalle at teotigraphix dot com
+////////////////////////////////////////////////////////////////////////////////
+
+package com.teotigraphix.bitwig.apiparser.core;
+
+/**
+ * The resolved signature of a method the writers render from, see
+ * {@link MethodSignatures}.
+ * <p>
+ * Holds the JavaScript return and parameter types, the parameter names and
+ * the type each of the method's normalized doc tags is rendered with.
+ * Immutable.
+ *
+ * @author Michael Schmalle
+ * @since 1.0
+ */
+public final class MethodSignature {
+
+    private final String name;
+
+    private final String returnType;
+
+    private final String[] parameterNames;
+
+    private final String[] parameterTypes;
+
+    private final boolean varArgs;
+
+    private final String[] tagTypes;
+
+    MethodSignature(String name, String returnType, String[] parameterNames,
+            String[] parameterTypes, boolean varArgs, String[] tagTypes) {
+        this.name = name;
+        this.returnType = returnType;
+        this.parameterNames = parameterNames;
+        this.parameterTypes = parameterTypes;
+        this.varArgs = varArgs;
+        this.tagTypes = tagTypes;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the JavaScript type of the return value.
+     */
+    public String getReturnType() {
+        return returnType;
+    }
+
+    public int getParameterCount() {
+        return parameterNames.length;
+    }
+
+    public String getParameterName(int index) {
+        return parameterNames[index];
+    }
+
+    /**
+     * Returns the JavaScript type of the parameter.
+     */
+    public String getParameterType(int index) {
+        return parameterTypes[index];
+    }
+
+    /**
+     * Returns whether the last parameter takes variable arguments.
+     */
+    public boolean isVarArgs() {
+        return varArgs;
+    }
+
+    /**
+     * Returns the type of the normalized tag at the index, the return type for
+     * <code>@return</code> and the parameter's type for a <code>@param</code>
+     * naming a parameter; <code>null</code> for other tags.
+     */
+    public String getTagType(int index) {
+        return tagTypes[index];
+    }
+}
@@ -0,0 +1,128 @@
+////////////////////////////////////////////////////////////////////////////////
+// Copyright 2014 Michael Schmalle - Teoti Graphix, LLC
+// 
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+// 
+// http://www.apache.org/licenses/LICENSE-2.0 
+// 
+// Unless required by applicable law or agreed to in writing, software 
+// distributed under the License is distributed on an "AS IS" BASIS, 
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and 
+// limitations under the License
+// 
+// Author: Michael Schmalle, Principal Architect
+// mschmalle at teotigraphix dot com
+////////////////////////////////////////////////////////////////////////////////
+
+package com.teotigraphix.bitwig.apiparser.core;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.teotigraphix.bitwig.apiparser.writer.TypeResolver;
+import com.thoughtworks.qdox.model.DocletTag;
+import com.thoughtworks.qdox.model.JavaClass;
+import com.thoughtworks.qdox.model.JavaMethod;
+import com.thoughtworks.qdox.model.JavaParameter;
+
+/**
+ * Builds the {@link MethodSignature} of a method the first time it is asked
+ * for and remembers it.
+ * <p>
+ * qdox methods are equal by signature, so a method of another model or a
+ * refreshed class with an equal signature replaces the remembered one. Thread
+ * safe, building a signature resolves qdox types which a parallel build does
+ * on the walk thread.
+ *
+ * @author Michael Schmalle
+ * @since 1.0
+ */
+public class MethodSignatures {
+
+    private ConcurrentMap<JavaMethod, Entry> signatures = new ConcurrentHashMap<JavaMethod, Entry>();
+
+    private TypeResolver typeResolver;
+
+    private DocTagNormalizer docTags;
+
+    public MethodSignatures(TypeResolver typeResolver, DocTagNormalizer docTags) {
+        this.typeResolver = typeResolver;
+        this.docTags = docTags;
+    }
+
+    /**
+     * Returns the signature of the method.
+     */
+    public MethodSignature getSignature(JavaMethod method) {
+        Entry entry = signatures.get(method);
+        if (entry == null || entry.method != method) {
+            entry = new Entry(method, create(method));
+            signatures.put(method, entry);
+        }
+        return entry.signature;
+    }
+
+    /**
+     * Forgets the signatures of the class's methods.
+     */
+    public void invalidate(JavaClass javaClass) {
+        for (JavaMethod method : javaClass.getMethods()) {
+            signatures.remove(method);
+        }
+    }
+
+    private MethodSignature create(JavaMethod method) {
+        List<JavaParameter> parameters = method.getParameters();
+        String[] names = new String[parameters.size()];
+        String[] types = new String[parameters.size()];
+        for (int i = 0; i < names.length; i++) {
+            JavaParameter parameter = parameters.get(i);
+            names[i] = parameter.getName();
+            if (parameter.getType() != null) {
+                types[i] = typeResolver.resolve(parameter.getType()
+                        .getGenericFullyQualifiedName());
+            }
+        }
+        boolean varArgs = !parameters.isEmpty()
+                && parameters.get(parameters.size() - 1).isVarArgs();
+        String returnType = typeResolver.resolve(method.getReturns()
+                .getGenericFullyQualifiedName());
+
+        List<DocletTag> tags = docTags.getTags(method);
+        String[] tagTypes = new String[tags.size()];
+        for (int i = 0; i < tagTypes.length; i++) {
+            DocletTag tag = tags.get(i);
+            if (tag == null)
+                continue;
+            if (tag.getName().equals(IWriterConstants.TAG_RETURN)) {
+                tagTypes[i] = returnType;
+            } else if (tag.getName().equals(IWriterConstants.TAG_PARAM)) {
+                String name = tag.getValue().split(" ")[0];
+                for (int j = 0; j < names.length; j++) {
+                    if (names[j].equals(name)) {
+                        tagTypes[i] = types[j];
+                        break;
+                    }
+                }
+            }
+        }
+
+        return new MethodSignature(method.getName(), returnType, names, types, varArgs, tagTypes);
+    }
+
+    private static class Entry {
+
+        private final JavaMethod method;
+
+        private final MethodSignature signature;
+
+        Entry(JavaMethod method, MethodSignature signature) {
+            this.method = method;
+            this.signature = signature;
+        }
+    }
+}
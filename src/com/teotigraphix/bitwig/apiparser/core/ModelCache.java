@@ -0,0 +1,262 @@
+////////////////////////////////////////////////////////////////////////////////
+// Copyright 2014 Michael Schmalle - Teoti Graphix, LLC
+// 
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+// 
+// http://www.apache.org/licenses/LICENSE-2.0 
+// 
+// Unless required by applicable law or agreed to in writing, software 
+// distributed under the License is distributed on an "AS IS" BASIS, 
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and 
+// limitations under the License
+// 
+// Author: Michael Schmalle, Principal Architect
+// mschmalle at teotigraphix dot com
+////////////////////////////////////////////////////////////////////////////////
+
+package com.teotigraphix.bitwig.apiparser.core;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.Collection;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+
+import com.thoughtworks.qdox.model.JavaSource;
+
+/**
+ * A binary snapshot of a parsed model that lets warm starts skip
+ * qdox parsing.
+ * <p>
+ * The file holds a magic number, the format version and the fingerprint of
+ * the source tree it was taken from, followed by each source's URL relative
+ * to the source directory and the parser calls that built it, recorded by a
+ * {@link ParallelClassLibraryBuilder#setRecording(boolean) recording}
+ * library builder. Loading replays the calls into a fresh library builder,
+ * which builds the same model without lexing and parsing the files; a source
+ * that could not be recorded is parsed again. qdox's own model is not
+ * serializable, its lazily resolved types hold references that are not.
+ * <p>
+ * The snapshot is memory-mapped on load and only used when the fingerprint
+ * still matches the source tree.
+ *
+ * @author Michael Schmalle
+ * @since 1.0
+ */
+public class ModelCache {
+
+    private static final int MAGIC = 0x42574d43; // BWMC
+
+    /**
+     * Bump whenever the snapshot layout or the recorded calls change.
+     */
+    private static final int FORMAT_VERSION = 4;
+
+    private static final int NOT_RECORDED = -1;
+
+    private File file;
+
+    private URI sourceRoot;
+
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * @param file the snapshot
+     * @param sourceDirectory the source tree the snapshot is taken from, the
+     *        sources are stored relative to it so a copied or moved tree
+     *        loads its own files
+     */
+    public ModelCache(File file, File sourceDirectory) {
+        this.file = file;
+        this.sourceRoot = sourceDirectory.getAbsoluteFile().toURI();
+    }
+
+    /**
+     * Returns the fingerprint of the <code>.java</code> files below the
+     * directory, their relative paths and contents in path order.
+     */
+    public static String fingerprint(File directory) throws IOException {
+        MessageDigest digest = BuildManifest.newDigest();
+        fingerprint(directory, "", digest);
+        return BuildManifest.toHex(digest.digest());
+    }
+
+    private static void fingerprint(File directory, String path, MessageDigest digest)
+            throws IOException {
+        File[] files = directory.listFiles();
+        if (files == null)
+            return;
+        Arrays.sort(files);
+        for (File file : files) {
+            String name = path + "/" + file.getName();
+            if (file.isDirectory()) {
+                fingerprint(file, name, digest);
+            } else if (file.getName().endsWith(".java")) {
+                digest.update(name.getBytes("UTF-8"));
+                digest.update((byte)0);
+                digest.update(FileUtils.readFileToByteArray(file));
+            }
+        }
+    }
+
+    /**
+     * Adds the cached sources to the library builder if they were taken from
+     * a source tree with the fingerprint.
+     *
+     * @return <code>false</code> if the snapshot is missing, stale or
+     *         unreadable; the library builder may then hold part of the
+     *         sources and is discarded
+     */
+    public boolean load(String fingerprint, ParallelClassLibraryBuilder libraryBuilder) {
+        if (!file.isFile())
+            return false;
+
+        try {
+            RandomAccessFile raf = new RandomAccessFile(file, "r");
+            try {
+                FileChannel channel = raf.getChannel();
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0,
+                        channel.size());
+
+                if (buffer.getInt() != MAGIC || buffer.getInt() != FORMAT_VERSION)
+                    return false;
+                if (!readString(buffer).equals(fingerprint))
+                    return false;
+
+                int count = buffer.getInt();
+                for (int i = 0; i < count; i++) {
+                    URL url = sourceRoot.resolve(readString(buffer)).toURL();
+                    int length = buffer.getInt();
+                    if (length == NOT_RECORDED) {
+                        libraryBuilder.addSource(url);
+                        continue;
+                    }
+                    ByteBuffer recording = buffer.slice();
+                    recording.limit(length);
+                    buffer.position(buffer.position() + length);
+                    libraryBuilder.addRecording(new ByteBufferInputStream(recording), url);
+                }
+                return true;
+            } finally {
+                raf.close();
+            }
+        } catch (IOException e) {
+            return false;
+        } catch (RuntimeException e) {
+            // a truncated snapshot or a source that no longer parses
+            return false;
+        }
+    }
+
+    /**
+     * Writes the sources' recordings, a failed snapshot is deleted.
+     *
+     * @return the number of sources without a recording, they are parsed
+     *         again on load
+     */
+    public int save(String fingerprint, ParallelClassLibraryBuilder libraryBuilder,
+            Collection<JavaSource> sources) throws IOException {
+        int notRecorded = 0;
+        boolean saved = false;
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                FileUtils.openOutputStream(file)));
+        try {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            writeString(out, fingerprint);
+
+            out.writeInt(sources.size());
+            for (JavaSource source : sources) {
+                writeString(out, toRelativePath(source.getURL()));
+                byte[] recording = libraryBuilder.getRecording(source);
+                if (recording == null) {
+                    out.writeInt(NOT_RECORDED);
+                    notRecorded++;
+                } else {
+                    out.writeInt(recording.length);
+                    out.write(recording);
+                }
+            }
+            out.close();
+            saved = true;
+        } finally {
+            if (!saved) {
+                IOUtils.closeQuietly(out);
+                FileUtils.deleteQuietly(file);
+            }
+        }
+        return notRecorded;
+    }
+
+    /**
+     * Returns the URL relative to the source root, a URL outside of it stays
+     * absolute.
+     */
+    private String toRelativePath(URL url) throws IOException {
+        try {
+            return sourceRoot.relativize(url.toURI()).toString();
+        } catch (URISyntaxException e) {
+            throw new IOException("Cannot cache source " + url, e);
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes("UTF-8");
+        out.writeShort(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer buffer) throws IOException {
+        byte[] bytes = new byte[buffer.getShort() & 0xFFFF];
+        buffer.get(bytes);
+        return new String(bytes, "UTF-8");
+    }
+
+    static class ByteBufferInputStream extends InputStream {
+
+        private ByteBuffer buffer;
+
+        ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (len == 0)
+                return 0;
+            if (!buffer.hasRemaining())
+                return -1;
+            len = Math.min(len, buffer.remaining());
+            buffer.get(b, off, len);
+            return len;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+}
@@ -0,0 +1,250 @@
+////////////////////////////////////////////////////////////////////////////////
+// Copyright 2014 Michael Schmalle - Teoti Graphix, LLC
+// 
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+// 
+// http://www.apache.org/licenses/LICENSE-2.0 
+// 
+// Unless required by applicable law or agreed to in writing, software 
+// distributed under the License is distributed on an "AS IS" BASIS, 
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and 
+// limitations under the License
+// 
+// Author: Michael Schmalle, Principal Architect
+// mschmalle at teotigraphix dot com
+////////////////////////////////////////////////////////////////////////////////
+
+package com.teotigraphix.bitwig.apiparser.core;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.util.List;
+
+import org.apache.commons.io.output.CountingOutputStream;
+
+import com.teotigraphix.bitwig.apiparser.writer.TypeResolver;
+import com.thoughtworks.qdox.model.DocletTag;
+import com.thoughtworks.qdox.model.JavaClass;
+import com.thoughtworks.qdox.model.JavaField;
+import com.thoughtworks.qdox.model.JavaMethod;
+
+/**
+ * Exports the analyzed model to {@link ParserConfig#getExportFile()} as JSON,
+ * or in the {@link CompactWriter compact form}, streaming each class as the
+ * walk visits it.
+ * <p>
+ * The document holds the export <code>format</code>, the API
+ * <code>version</code> and the <code>classes</code>; each class its names,
+ * kind, supertypes, doc comment, enum constants, methods and nested classes.
+ * Types are the JavaScript types of the stubs, method tags are normalized and
+ * <code>since</code> holds the version of the <code>@since</code> tag.
+ *
+ * @author Michael Schmalle
+ * @since 1.0
+ */
+class ModelExportEmitter implements IModelEmitter {
+
+    /**
+     * Bump whenever the structure of the exported document changes.
+     */
+    static final int FORMAT = 1;
+
+    private ParserConfig config;
+
+    private PhaseTimer timer;
+
+    private CountingWriter out;
+
+    private CountingOutputStream stream;
+
+    private IValueWriter writer;
+
+    private TypeResolver typeResolver;
+
+    private DocTagNormalizer docTags;
+
+    private MethodSignatures signatures;
+
+    private long io;
+
+    ModelExportEmitter(ParserConfig config, PhaseTimer timer) {
+        this.config = config;
+        this.timer = timer;
+    }
+
+    @Override
+    public String getName() {
+        return PhaseMetrics.EXPORT;
+    }
+
+    @Override
+    public void beginModel(APIParser parser) throws IOException {
+        typeResolver = config.getTypeResolver();
+        docTags = parser.getDocTags();
+        signatures = parser.getSignatures();
+
+        io = System.nanoTime();
+        if (config.isCompactExport()) {
+            stream = new CountingOutputStream(
+                    config.getOutputSink().openStream(config.getExportFile()));
+            writer = new CompactWriter(stream);
+        } else {
+            out = new CountingWriter(config.getOutputSink().openWriter(config.getExportFile()));
+            writer = new JsonWriter(out);
+        }
+        io = System.nanoTime() - io;
+
+        writer.beginObject();
+        writer.name("format").value(FORMAT);
+        writer.name("version").value(config.getVersion());
+        writer.name("classes").beginArray();
+    }
+
+    @Override
+    public void visitClass(JavaClass javaClass) throws IOException {
+        writeClass(javaClass);
+    }
+
+    @Override
+    public void visitMethod(JavaMethod method) throws IOException {
+    }
+
+    @Override
+    public void endModel() throws IOException {
+        boolean rendered = false;
+        try {
+            writer.endArray();
+            writer.endObject();
+
+            long flush = System.nanoTime();
+            writer.flush();
+            io += System.nanoTime() - flush;
+            rendered = true;
+        } finally {
+            long close = System.nanoTime();
+            if (rendered)
+                writer.close();
+            else
+                config.getOutputSink().abort(config.getExportFile());
+            io += System.nanoTime() - close;
+        }
+
+        timer.count(PhaseMetrics.COUNT_FILES, 1);
+        timer.count(PhaseMetrics.COUNT_BYTES, out != null ? out.getCount() : stream.getByteCount());
+        timer.count(PhaseMetrics.COUNT_IO_NANOS, io);
+    }
+
+    private void writeClass(JavaClass javaClass) throws IOException {
+        timer.count(PhaseMetrics.COUNT_CLASSES, 1);
+
+        writer.beginObject();
+        writer.name("name").symbol(typeResolver.toSimpleName(javaClass.getFullyQualifiedName()));
+        writer.name("qualifiedName").symbol(javaClass.getFullyQualifiedName());
+        writer.name("kind").symbol(javaClass.isEnum() ? "enum"
+                : javaClass.isInterface() ? "interface" : "class");
+
+        JavaClass superClass = javaClass.getSuperJavaClass();
+        if (superClass != null && !javaClass.isEnum()
+                && !superClass.getFullyQualifiedName().equals("java.lang.Object"))
+            writer.name("superclass").symbol(getJsType(superClass));
+
+        writer.name("interfaces").beginArray();
+        for (JavaClass implemented : javaClass.getImplementedInterfaces()) {
+            writer.symbol(getJsType(implemented));
+        }
+        writer.endArray();
+
+        writeComment(javaClass.getComment());
+        writeTags(javaClass.getTags());
+        writeSince(javaClass.getTags());
+
+        if (javaClass.isEnum()) {
+            writer.name("constants").beginArray();
+            for (JavaField field : javaClass.getFields()) {
+                if (field.isEnumConstant())
+                    writer.symbol(field.getName());
+            }
+            writer.endArray();
+        }
+
+        writer.name("methods").beginArray();
+        for (JavaMethod method : javaClass.getMethods()) {
+            writeMethod(method);
+        }
+        writer.endArray();
+
+        writer.name("classes").beginArray();
+        for (JavaClass nested : javaClass.getNestedClasses()) {
+            writeClass(nested);
+        }
+        writer.endArray();
+
+        writer.endObject();
+    }
+
+    private void writeMethod(JavaMethod method) throws IOException {
+        timer.count(PhaseMetrics.COUNT_METHODS, 1);
+
+        MethodSignature signature = signatures.getSignature(method);
+        writer.beginObject();
+        writer.name("name").symbol(signature.getName());
+        writer.name("returns").symbol(signature.getReturnType());
+
+        writer.name("parameters").beginArray();
+        int count = signature.getParameterCount();
+        for (int i = 0; i < count; i++) {
+            writer.beginObject();
+            writer.name("name").symbol(signature.getParameterName(i));
+            writer.name("type").symbol(signature.getParameterType(i));
+            if (i == count - 1 && signature.isVarArgs())
+                writer.name("varArgs").value(true);
+            writer.endObject();
+        }
+        writer.endArray();
+
+        writeComment(method.getComment());
+        List<DocletTag> tags = docTags.getTags(method);
+        writeTags(tags);
+        writeSince(tags);
+
+        writer.endObject();
+    }
+
+    private void writeComment(String comment) throws IOException {
+        if (comment != null && comment.length() > 0)
+            writer.name("comment").value(comment);
+    }
+
+    // qdox leaves the tags of some methods null
+    private void writeTags(List<DocletTag> tags) throws IOException {
+        writer.name("tags").beginArray();
+        if (tags != null) {
+            for (DocletTag tag : tags) {
+                writer.beginObject();
+                writer.name("name").symbol(tag.getName());
+                writer.name("value").value(tag.getValue());
+                writer.endObject();
+            }
+            timer.count(PhaseMetrics.COUNT_TAGS, tags.size());
+        }
+        writer.endArray();
+    }
+
+    private void writeSince(List<DocletTag> tags) throws IOException {
+        if (tags == null)
+            return;
+        for (DocletTag tag : tags) {
+            if (tag.getName().equals(IWriterConstants.TAG_SINCE)) {
+                writer.name("since").symbol(Version.fromSince(tag.getValue()).get());
+                return;
+            }
+        }
+    }
+
+    private String getJsType(JavaClass type) {
+        return typeResolver.resolve(type.getGenericFullyQualifiedName());
+    }
+}
@@ -0,0 +1,393 @@
+////////////////////////////////////////////////////////////////////////////////
+// Copyright 2014 Michael Schmalle - Teoti Graphix, LLC
+// 
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+// 
+// http://www.apache.org/licenses/LICENSE-2.0 
+// 
+// Unless required by applicable law or agreed to in writing, software 
+// distributed under the License is distributed on an "AS IS" BASIS, 
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and 
+// limitations under the License
+// 
+// Author: Michael Schmalle, Principal Architect
+// mschmalle at teotigraphix dot com
+////////////////////////////////////////////////////////////////////////////////
+
+package com.teotigraphix.bitwig.apiparser.core;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.Reader;
+import java.net.URL;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import com.thoughtworks.qdox.builder.Builder;
+import com.thoughtworks.qdox.builder.ModelBuilderFactory;
+import com.thoughtworks.qdox.library.AbstractClassLibrary;
+import com.thoughtworks.qdox.library.ClassLibrary;
+import com.thoughtworks.qdox.library.ClassLibraryBuilder;
+import com.thoughtworks.qdox.library.ClassLoaderLibrary;
+import com.thoughtworks.qdox.library.ClassNameLibrary;
+import com.thoughtworks.qdox.library.ErrorHandler;
+import com.thoughtworks.qdox.library.SourceFolderLibrary;
+import com.thoughtworks.qdox.library.SourceLibrary;
+import com.thoughtworks.qdox.model.JavaSource;
+import com.thoughtworks.qdox.parser.ParseException;
+import com.thoughtworks.qdox.writer.ModelWriterFactory;
+
+/**
+ * A qdox {@link ClassLibraryBuilder} with the libraries of the
+ * <code>SortedClassLibraryBuilder</code> that loads a source tree in
+ * parallel, see {@link #addSourceTree(File, int)}.
+ *
+ * @author Michael Schmalle
+ * @since 1.0
+ */
+public class ParallelClassLibraryBuilder implements ClassLibraryBuilder {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final String SUFFIX = ".java";
+
+    private static final String PACKAGE_INFO = "package-info.java";
+
+    private final ClassNameLibrary classNameLibrary;
+
+    private final ClassLoaderLibrary classLoaderLibrary;
+
+    private final SourceFolderLibrary sourceFolderLibrary;
+
+    private final LoadingSourceLibrary sourceLibrary;
+
+    public ParallelClassLibraryBuilder() {
+        classNameLibrary = new ClassNameLibrary();
+        classLoaderLibrary = new ClassLoaderLibrary(classNameLibrary);
+        sourceFolderLibrary = new SourceFolderLibrary(classLoaderLibrary);
+        sourceLibrary = new LoadingSourceLibrary(sourceFolderLibrary);
+    }
+
+    /**
+     * Adds the <code>.java</code> files of the directory and its
+     * subdirectories, like <code>JavaProjectBuilder.addSourceTree()</code>.
+     * <p>
+     * The files are read whole and parsed on a fork-join pool of the thread
+     * count, each file by its own parser. The sources are then registered on
+     * the calling thread in the order of the directory walk, so the model is
+     * the same as when parsed sequentially. Sources of a package with a
+     * <code>package-info.java</code> are added sequentially, qdox reads the
+     * package's documentation while registering them.
+     *
+     * @return the added sources in walk order
+     * @throws ParseException the first file in walk order that failed to
+     *         parse, no source is added
+     */
+    public List<JavaSource> addSourceTree(File directory, int threadCount) throws IOException {
+        final List<Path> files = new ArrayList<Path>();
+        Files.walkFileTree(directory.toPath(), new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                if (attrs.isRegularFile() && file.getFileName().toString().endsWith(SUFFIX))
+                    files.add(file);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+
+        Set<Path> documented = new HashSet<Path>();
+        for (Path file : files) {
+            if (file.getFileName().toString().equals(PACKAGE_INFO))
+                documented.add(file.getParent());
+        }
+
+        List<ParseTask> tasks = new ArrayList<ParseTask>();
+        for (Path file : files) {
+            if (!documented.contains(file.getParent()))
+                tasks.add(new ParseTask(file.toFile()));
+        }
+        List<JavaSource> parsed = parse(tasks, threadCount);
+
+        List<JavaSource> result = new ArrayList<JavaSource>();
+        int index = 0;
+        for (Path file : files) {
+            JavaSource source;
+            if (documented.contains(file.getParent())) {
+                // skips package-info.java itself
+                source = sourceLibrary.addSource(file.toFile());
+            } else {
+                source = parsed.get(index++);
+                if (source != null)
+                    sourceLibrary.register(source);
+            }
+            if (source != null)
+                result.add(source);
+        }
+        return result;
+    }
+
+    /**
+     * Whether the parser calls building each source are recorded, see
+     * {@link #getRecording(JavaSource)}; off by default.
+     */
+    public boolean isRecording() {
+        return sourceLibrary.recording;
+    }
+
+    public void setRecording(boolean recording) {
+        sourceLibrary.recording = recording;
+    }
+
+    /**
+     * Returns the recorded parser calls that built the source,
+     * <code>null</code> if it was built while not recording or uses
+     * constructs that are not recorded.
+     */
+    public byte[] getRecording(JavaSource source) {
+        return sourceLibrary.recordings.get(source);
+    }
+
+    /**
+     * Drops the recordings once they are saved.
+     */
+    public void clearRecordings() {
+        sourceLibrary.recordings.clear();
+    }
+
+    /**
+     * Builds a source from a {@link #getRecording(JavaSource) recording}
+     * instead of parsing its file and adds it like
+     * {@link #addSource(URL)} does.
+     *
+     * @throws IOException the recording is malformed
+     */
+    public JavaSource addRecording(InputStream recording, URL url) throws IOException {
+        JavaSource source = RecordingBuilder.replay(recording, url,
+                sourceLibrary.newModelBuilder());
+        sourceLibrary.register(source);
+        return source;
+    }
+
+    private static List<JavaSource> parse(List<ParseTask> tasks, int threadCount)
+            throws IOException {
+        List<JavaSource> result = new ArrayList<JavaSource>(tasks.size());
+        if (threadCount == 1 || tasks.size() < 2) {
+            for (ParseTask task : tasks) {
+                result.add(task.call());
+            }
+            return result;
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(threadCount);
+        try {
+            for (Future<JavaSource> future : pool.invokeAll(tasks)) {
+                result.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Source tree loading interrupted");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException)
+                throw (IOException)cause;
+            if (cause instanceof RuntimeException)
+                throw (RuntimeException)cause;
+            throw new IOException(cause);
+        } finally {
+            pool.shutdown();
+        }
+        return result;
+    }
+
+    @Override
+    public ClassLibraryBuilder appendClassLoader(ClassLoader classLoader) {
+        classLoaderLibrary.addClassLoader(classLoader);
+        return this;
+    }
+
+    @Override
+    public ClassLibraryBuilder appendDefaultClassLoaders() {
+        classLoaderLibrary.addDefaultLoader();
+        return this;
+    }
+
+    @Override
+    public ClassLibraryBuilder appendSourceFolder(File sourceFolder) {
+        sourceFolderLibrary.addSourceFolder(sourceFolder);
+        return this;
+    }
+
+    @Override
+    public ClassLibraryBuilder appendSource(InputStream stream) {
+        sourceLibrary.addSource(stream);
+        return this;
+    }
+
+    @Override
+    public ClassLibraryBuilder appendSource(Reader reader) {
+        sourceLibrary.addSource(reader);
+        return this;
+    }
+
+    @Override
+    public ClassLibraryBuilder appendSource(URL url) throws IOException {
+        sourceLibrary.addSource(url);
+        return this;
+    }
+
+    @Override
+    public ClassLibraryBuilder appendSource(File file) throws IOException {
+        sourceLibrary.addSource(file);
+        return this;
+    }
+
+    @Override
+    public JavaSource addSource(InputStream stream) {
+        return sourceLibrary.addSource(stream);
+    }
+
+    @Override
+    public JavaSource addSource(Reader reader) {
+        return sourceLibrary.addSource(reader);
+    }
+
+    @Override
+    public JavaSource addSource(URL url) throws IOException {
+        return sourceLibrary.addSource(url);
+    }
+
+    @Override
+    public JavaSource addSource(File file) throws IOException {
+        return sourceLibrary.addSource(file);
+    }
+
+    @Override
+    public ClassLibraryBuilder setDebugLexer(boolean debugLexer) {
+        classLoaderLibrary.setDebugLexer(debugLexer);
+        sourceFolderLibrary.setDebugLexer(debugLexer);
+        sourceLibrary.setDebugLexer(debugLexer);
+        return this;
+    }
+
+    @Override
+    public ClassLibraryBuilder setDebugParser(boolean debugParser) {
+        classLoaderLibrary.setDebugParser(debugParser);
+        sourceFolderLibrary.setDebugParser(debugParser);
+        sourceLibrary.setDebugParser(debugParser);
+        return this;
+    }
+
+    @Override
+    public ClassLibraryBuilder setEncoding(String encoding) {
+        sourceFolderLibrary.setEncoding(encoding);
+        sourceLibrary.setEncoding(encoding);
+        return this;
+    }
+
+    @Override
+    public ClassLibraryBuilder setErrorHander(ErrorHandler errorHandler) {
+        classLoaderLibrary.setErrorHandler(errorHandler);
+        sourceFolderLibrary.setErrorHandler(errorHandler);
+        sourceLibrary.setErrorHandler(errorHandler);
+        return this;
+    }
+
+    @Override
+    public ClassLibraryBuilder setModelBuilderFactory(ModelBuilderFactory factory) {
+        classNameLibrary.setModelBuilderFactory(factory);
+        classLoaderLibrary.setModelBuilderFactory(factory);
+        sourceFolderLibrary.setModelBuilderFactory(factory);
+        sourceLibrary.setModelBuilderFactory(factory);
+        return this;
+    }
+
+    @Override
+    public ClassLibraryBuilder setModelWriterFactory(ModelWriterFactory factory) {
+        classNameLibrary.setModelWriterFactory(factory);
+        classLoaderLibrary.setModelWriterFactory(factory);
+        sourceFolderLibrary.setModelWriterFactory(factory);
+        sourceLibrary.setModelWriterFactory(factory);
+        return this;
+    }
+
+    @Override
+    public ClassLibrary getClassLibrary() {
+        return sourceLibrary;
+    }
+
+    /**
+     * Reads a file whole and parses it into a source without registering it.
+     */
+    private class ParseTask implements Callable<JavaSource> {
+
+        private final File file;
+
+        ParseTask(File file) {
+            this.file = file;
+        }
+
+        @Override
+        public JavaSource call() throws IOException {
+            byte[] content = Files.readAllBytes(file.toPath());
+            // the URL of the file as qdox forms it, the sources are keyed by it
+            return sourceLibrary.parse(new ByteArrayInputStream(content), file.toURI().toURL());
+        }
+    }
+
+    /**
+     * Separates parsing a source, which only reads the library's settings,
+     * from registering it, and records the parser calls while
+     * {@link ParallelClassLibraryBuilder#setRecording(boolean) recording}.
+     */
+    static class LoadingSourceLibrary extends SourceLibrary {
+
+        private static final long serialVersionUID = 1L;
+
+        private boolean recording;
+
+        private final Map<JavaSource, byte[]> recordings = Collections
+                .synchronizedMap(new IdentityHashMap<JavaSource, byte[]>());
+
+        LoadingSourceLibrary(AbstractClassLibrary parent) {
+            super(parent);
+        }
+
+        @Override
+        protected Builder getModelBuilder() {
+            Builder builder = super.getModelBuilder();
+            return recording ? new RecordingBuilder(builder, recordings) : builder;
+        }
+
+        Builder newModelBuilder() {
+            return super.getModelBuilder();
+        }
+
+        @Override
+        protected JavaSource parse(InputStream stream, URL url) {
+            return super.parse(stream, url);
+        }
+
+        void register(JavaSource source) {
+            registerJavaSource(source);
+        }
+    }
+}
@@ -20,6 +20,10 @@
 package com.teotigraphix.bitwig.apiparser.core;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.teotigraphix.bitwig.apiparser.writer.TypeResolver;
 
 /**
  * @author Michael Schmalle
@@ -35,6 +39,36 @@ public class ParserConfig {
 
     private File changesFile;
 
+    private int threadCount = 1;
+
+    private boolean incremental;
+
+    private IOutputSink outputSink;
+
+    private List<IParserListener> listeners = new ArrayList<IParserListener>();
+
+    private File metricsFile;
+
+    private List<IModelEmitter> emitters = new ArrayList<IModelEmitter>();
+
+    private File modelCacheFile;
+
+    private ParserConfig previousConfig;
+
+    private TypeResolver typeResolver;
+
+    private File bundleFile;
+
+    private File declarationsFile;
+
+    private File exportFile;
+
+    private boolean compactExport;
+
+    private List<String> includes = new ArrayList<String>();
+
+    private List<String> excludes = new ArrayList<String>();
+
     public File getSourceDirectory() {
         return sourceDirectory;
     }
@@ -55,6 +89,211 @@ public class ParserConfig {
         this.changesFile = changesFile;
     }
 
+    /**
+     * The number of worker threads used to parse and index the sources and
+     * render stubs, <code>1</code> (the default) runs sequentially on the
+     * calling thread.
+     */
+    public int getThreadCount() {
+        return threadCount;
+    }
+
+    public void setThreadCount(int threadCount) {
+        if (threadCount < 1)
+            throw new IllegalArgumentException("Thread count must be at least 1");
+        this.threadCount = threadCount;
+    }
+
+    /**
+     * Whether stubs of sources unchanged since the last build are skipped,
+     * see {@link BuildManifest}.
+     */
+    public boolean isIncremental() {
+        return incremental;
+    }
+
+    public void setIncremental(boolean incremental) {
+        this.incremental = incremental;
+    }
+
+    /**
+     * The sink generated files are written to, a {@link CommittingOutputSink}
+     * unless set; closed at the end of {@link APIParser#build()}.
+     */
+    public IOutputSink getOutputSink() {
+        if (outputSink == null)
+            outputSink = new CommittingOutputSink();
+        return outputSink;
+    }
+
+    public void setOutputSink(IOutputSink outputSink) {
+        this.outputSink = outputSink;
+    }
+
+    /**
+     * The rules Java types are converted to JavaScript types by, the Bitwig
+     * API's unless set; configure before the build.
+     */
+    public TypeResolver getTypeResolver() {
+        if (typeResolver == null)
+            typeResolver = TypeResolver.createDefault();
+        return typeResolver;
+    }
+
+    public void setTypeResolver(TypeResolver typeResolver) {
+        this.typeResolver = typeResolver;
+    }
+
+    /**
+     * Whether a resolver was set or {@link #getTypeResolver()} already
+     * created the default one.
+     */
+    public boolean hasTypeResolver() {
+        return typeResolver != null;
+    }
+
+    /**
+     * The single file all stubs are written to instead of one file per class,
+     * with a byte-offset index in <code>&lt;bundle&gt;.index</code>;
+     * <code>null</code> (the default) writes a file per class.
+     */
+    public File getBundleFile() {
+        return bundleFile;
+    }
+
+    public void setBundleFile(File bundleFile) {
+        this.bundleFile = bundleFile;
+    }
+
+    /**
+     * The TypeScript declarations file written along with the stubs;
+     * <code>null</code> (the default) writes none.
+     */
+    public File getDeclarationsFile() {
+        return declarationsFile;
+    }
+
+    public void setDeclarationsFile(File declarationsFile) {
+        this.declarationsFile = declarationsFile;
+    }
+
+    /**
+     * The file the analyzed model is exported to for downstream tooling, as
+     * JSON unless {@link #isCompactExport() compact}; <code>null</code> (the
+     * default) exports none.
+     */
+    public File getExportFile() {
+        return exportFile;
+    }
+
+    public void setExportFile(File exportFile) {
+        this.exportFile = exportFile;
+    }
+
+    /**
+     * Whether the export is written in the binary form of the
+     * {@link CompactWriter} instead of JSON.
+     */
+    public boolean isCompactExport() {
+        return compactExport;
+    }
+
+    public void setCompactExport(boolean compactExport) {
+        this.compactExport = compactExport;
+    }
+
+    /**
+     * The patterns of the classes {@link APIParser#build()} emits, along with
+     * their supertypes; every class when empty. A pattern matches the simple
+     * or qualified class name, <code>*</code> matches any characters.
+     */
+    public List<String> getIncludes() {
+        return includes;
+    }
+
+    public void addInclude(String pattern) {
+        includes.add(pattern);
+    }
+
+    /**
+     * The patterns of the classes {@link APIParser#build()} leaves out, even
+     * when included or a supertype of an included class.
+     */
+    public List<String> getExcludes() {
+        return excludes;
+    }
+
+    public void addExclude(String pattern) {
+        excludes.add(pattern);
+    }
+
+    public List<IParserListener> getListeners() {
+        return listeners;
+    }
+
+    public void addListener(IParserListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(IParserListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * The file a JSON summary of the run's {@link PhaseMetrics} is written to
+     * at the end of {@link APIParser#build()}, <code>null</code> (the default)
+     * writes none.
+     */
+    public File getMetricsFile() {
+        return metricsFile;
+    }
+
+    public void setMetricsFile(File metricsFile) {
+        this.metricsFile = metricsFile;
+    }
+
+    /**
+     * The emitters run by {@link APIParser#build()} in addition to the stubs
+     * and the changes report.
+     */
+    public List<IModelEmitter> getEmitters() {
+        return emitters;
+    }
+
+    public void addEmitter(IModelEmitter emitter) {
+        emitters.add(emitter);
+    }
+
+    public void removeEmitter(IModelEmitter emitter) {
+        emitters.remove(emitter);
+    }
+
+    /**
+     * The snapshot the parsed model is loaded from when the source tree is
+     * unchanged, see {@link ModelCache}; <code>null</code> (the default)
+     * always parses the source tree.
+     */
+    public File getModelCacheFile() {
+        return modelCacheFile;
+    }
+
+    public void setModelCacheFile(File modelCacheFile) {
+        this.modelCacheFile = modelCacheFile;
+    }
+
+    /**
+     * The source tree of the previous release, the changes report lists the
+     * differences to it, see {@link APIDiff}; <code>null</code> (the default)
+     * reports the <code>@since</code> tags only.
+     */
+    public ParserConfig getPreviousConfig() {
+        return previousConfig;
+    }
+
+    public void setPreviousConfig(ParserConfig previousConfig) {
+        this.previousConfig = previousConfig;
+    }
+
     public ParserConfig(String source, String output, String version) {
         sourceDirectory = new File(source);
         outputDirectory = new File(output);
@@ -0,0 +1,154 @@
+////////////////////////////////////////////////////////////////////////////////
+// Copyright 2014 Michael Schmalle - Teoti Graphix, LLC
+// 
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+// 
+// http://www.apache.org/licenses/LICENSE-2.0 
+// 
+// Unless required by applicable law or agreed to in writing, software 
+// distributed under the License is distributed on an "AS IS" BASIS, 
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and 
+// limitations under the License
+// 
+// Author: Michael Schmalle, Principal Architect
+// mschmalle at teotigraphix dot com
+////////////////////////////////////////////////////////////////////////////////
+
+package com.teotigraphix.bitwig.apiparser.core;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * The measurements of one phase of an {@link APIParser} run.
+ * <p>
+ * CPU time and allocated bytes include the worker threads of a parallel
+ * phase, they are <code>-1</code> when the JVM does not support measuring
+ * them.
+ *
+ * @author Michael Schmalle
+ * @since 1.0
+ */
+public class PhaseMetrics {
+
+    public static final String SOURCE_TREE = "sourceTree";
+
+    public static final String ANALYZE = "analyze";
+
+    public static final String STUBS = "stubs";
+
+    public static final String CHANGES = "changes";
+
+    public static final String DECLARATIONS = "declarations";
+
+    public static final String EXPORT = "export";
+
+    /**
+     * Saving the {@link ModelCache} after a cold parse.
+     */
+    public static final String MODEL_CACHE = "modelCache";
+
+    public static final String COUNT_SOURCES = "sources";
+
+    public static final String COUNT_CLASSES = "classes";
+
+    public static final String COUNT_METHODS = "methods";
+
+    /**
+     * The doc tags of the scanned methods as parsed in the analyze phase,
+     * they are normalized lazily when an emitter asks for them.
+     */
+    public static final String COUNT_TAGS = "tags";
+
+    public static final String COUNT_SKIPPED = "skipped";
+
+    public static final String COUNT_CHANGED = "changed";
+
+    public static final String COUNT_FILES = "files";
+
+    public static final String COUNT_BYTES = "bytes";
+
+    /**
+     * Sources the model cache could not record, they are parsed again when
+     * it is loaded.
+     */
+    public static final String COUNT_REPARSED = "reparsed";
+
+    /**
+     * <code>1</code> when the phase failed without failing the build, such as
+     * a model cache that could not be saved.
+     */
+    public static final String COUNT_FAILED = "failed";
+
+    /**
+     * Nanoseconds spent opening, flushing and closing output.
+     */
+    public static final String COUNT_IO_NANOS = "ioNanos";
+
+    private String name;
+
+    private long wallNanos;
+
+    private long cpuNanos;
+
+    private long allocatedBytes;
+
+    private Map<String, Long> counts;
+
+    public String getName() {
+        return name;
+    }
+
+    public long getWallNanos() {
+        return wallNanos;
+    }
+
+    public long getCpuNanos() {
+        return cpuNanos;
+    }
+
+    public long getAllocatedBytes() {
+        return allocatedBytes;
+    }
+
+    public Map<String, Long> getCounts() {
+        return counts;
+    }
+
+    public long getCount(String key) {
+        Long count = counts.get(key);
+        return count != null ? count : 0;
+    }
+
+    public PhaseMetrics(String name, long wallNanos, long cpuNanos, long allocatedBytes,
+            Map<String, Long> counts) {
+        this.name = name;
+        this.wallNanos = wallNanos;
+        this.cpuNanos = cpuNanos;
+        this.allocatedBytes = allocatedBytes;
+        this.counts = Collections.unmodifiableMap(counts);
+    }
+
+    public void write(JsonWriter writer) throws IOException {
+        writer.beginObject();
+        writer.name("name").value(name);
+        writer.name("wallNanos").value(wallNanos);
+        writer.name("cpuNanos").value(cpuNanos);
+        writer.name("allocatedBytes").value(allocatedBytes);
+        writer.name("counts").beginObject();
+        for (Map.Entry<String, Long> entry : counts.entrySet()) {
+            writer.name(entry.getKey()).value(entry.getValue());
+        }
+        writer.endObject();
+        writer.endObject();
+    }
+
+    @Override
+    public String toString() {
+        return name + " " + (wallNanos / 1000000) + "ms " + counts;
+    }
+}
@@ -0,0 +1,124 @@
+////////////////////////////////////////////////////////////////////////////////
+// Copyright 2014 Michael Schmalle - Teoti Graphix, LLC
+// 
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+// 
+// http://www.apache.org/licenses/LICENSE-2.0 
+// 
+// Unless required by applicable law or agreed to in writing, software 
+// distributed under the License is distributed on an "AS IS" BASIS, 
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and 
+// limitations under the License
+// 
+// Author: Michael Schmalle, Principal Architect
+// mschmalle at teotigraphix dot com
+////////////////////////////////////////////////////////////////////////////////
+
+package com.teotigraphix.bitwig.apiparser.core;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Measures a phase on the thread that drives it, see {@link PhaseMetrics}.
+ * <p>
+ * A phase interleaved with others, such as an {@link IModelEmitter}, is
+ * measured in segments between {@link #resume()} and {@link #pause()}.
+ *
+ * @author Michael Schmalle
+ * @since 1.0
+ */
+class PhaseTimer {
+
+    private static final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+
+    private String name;
+
+    private boolean running;
+
+    private long wallMark;
+
+    private long cpuMark;
+
+    private long allocatedMark;
+
+    private long wall;
+
+    private long cpu;
+
+    private long allocated;
+
+    private Map<String, Long> counts = new LinkedHashMap<String, Long>();
+
+    /**
+     * Creates the timer running.
+     */
+    PhaseTimer(String name) {
+        this.name = name;
+        resume();
+    }
+
+    synchronized void resume() {
+        if (running)
+            return;
+        running = true;
+        cpuMark = cpuTime();
+        allocatedMark = allocatedBytes();
+        wallMark = System.nanoTime();
+    }
+
+    synchronized void pause() {
+        if (!running)
+            return;
+        running = false;
+        wall += System.nanoTime() - wallMark;
+        cpu = cpuMark < 0 || cpu < 0 ? -1 : cpu + cpuTime() - cpuMark;
+        allocated = allocatedMark < 0 || allocated < 0 ? -1 : allocated + allocatedBytes()
+                - allocatedMark;
+    }
+
+    synchronized void count(String key, long delta) {
+        Long count = counts.get(key);
+        counts.put(key, count != null ? count + delta : delta);
+    }
+
+    /**
+     * Adds the usage a worker thread measured for its share of the phase.
+     */
+    synchronized void addWorkerUsage(long workerCpu, long workerAllocated) {
+        if (cpu >= 0)
+            cpu += workerCpu;
+        if (allocated >= 0)
+            allocated += workerAllocated;
+    }
+
+    synchronized PhaseMetrics stop() {
+        pause();
+        return new PhaseMetrics(name, wall, cpu, allocated, counts);
+    }
+
+    /**
+     * Returns the CPU time of the current thread, or <code>-1</code>.
+     */
+    static long cpuTime() {
+        if (!threads.isCurrentThreadCpuTimeSupported())
+            return -1;
+        return threads.getCurrentThreadCpuTime();
+    }
+
+    /**
+     * Returns the bytes allocated by the current thread, or <code>-1</code>.
+     */
+    static long allocatedBytes() {
+        if (threads instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean)threads).getThreadAllocatedBytes(Thread
+                    .currentThread().getId());
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,608 @@
+////////////////////////////////////////////////////////////////////////////////
+// Copyright 2014 Michael Schmalle - Teoti Graphix, LLC
+// 
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+// 
+// http://www.apache.org/licenses/LICENSE-2.0 
+// 
+// Unless required by applicable law or agreed to in writing, software 
+// distributed under the License is distributed on an "AS IS" BASIS, 
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and 
+// limitations under the License
+// 
+// Author: Michael Schmalle, Principal Architect
+// mschmalle at teotigraphix dot com
+////////////////////////////////////////////////////////////////////////////////
+
+package com.teotigraphix.bitwig.apiparser.core;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.thoughtworks.qdox.builder.Builder;
+import com.thoughtworks.qdox.model.JavaSource;
+import com.thoughtworks.qdox.parser.expression.ExpressionDef;
+import com.thoughtworks.qdox.parser.structs.AnnoDef;
+import com.thoughtworks.qdox.parser.structs.ClassDef;
+import com.thoughtworks.qdox.parser.structs.FieldDef;
+import com.thoughtworks.qdox.parser.structs.InitDef;
+import com.thoughtworks.qdox.parser.structs.LocatedDef;
+import com.thoughtworks.qdox.parser.structs.MethodDef;
+import com.thoughtworks.qdox.parser.structs.PackageDef;
+import com.thoughtworks.qdox.parser.structs.TagDef;
+import com.thoughtworks.qdox.parser.structs.TypeDef;
+import com.thoughtworks.qdox.parser.structs.TypeVariableDef;
+import com.thoughtworks.qdox.parser.structs.WildcardTypeDef;
+import com.thoughtworks.qdox.writer.ModelWriterFactory;
+
+/**
+ * A qdox {@link Builder} that records the calls of the parser while passing
+ * them on, see {@link ModelCache}.
+ * <p>
+ * {@link #replay(InputStream, URL, Builder)} makes the same calls on another
+ * builder, which then builds the same source without lexing and parsing the
+ * file. The calls are encoded as they are made since the parser may reuse
+ * the structures it passes. Annotation arguments and enum constant arguments
+ * are expression trees that are not recorded, a source using them has no
+ * recording and is parsed again instead.
+ *
+ * @author Michael Schmalle
+ * @since 1.0
+ */
+class RecordingBuilder implements Builder {
+
+    private static final int END = 0;
+
+    private static final int PACKAGE = 1;
+
+    private static final int IMPORT = 2;
+
+    private static final int JAVADOC = 3;
+
+    private static final int JAVADOC_TAG = 4;
+
+    private static final int BEGIN_CLASS = 5;
+
+    private static final int END_CLASS = 6;
+
+    private static final int INITIALIZER = 7;
+
+    private static final int BEGIN_CONSTRUCTOR = 8;
+
+    private static final int END_CONSTRUCTOR = 9;
+
+    private static final int BEGIN_METHOD = 10;
+
+    private static final int END_METHOD = 11;
+
+    private static final int BEGIN_FIELD = 12;
+
+    private static final int END_FIELD = 13;
+
+    private static final int PARAMETER = 14;
+
+    private static final int ANNOTATION = 15;
+
+    private static final int TYPE_NONE = 0;
+
+    private static final int TYPE_PLAIN = 1;
+
+    private static final int TYPE_WILDCARD = 2;
+
+    private Builder delegate;
+
+    private Map<JavaSource, byte[]> recordings;
+
+    private ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+    private DataOutputStream out = new DataOutputStream(bytes);
+
+    private boolean recordable = true;
+
+    /**
+     * @param delegate the builder the calls are passed on to
+     * @param recordings receives the recording of the source built, a source
+     *        that can not be recorded is left out
+     */
+    RecordingBuilder(Builder delegate, Map<JavaSource, byte[]> recordings) {
+        this.delegate = delegate;
+        this.recordings = recordings;
+    }
+
+    /**
+     * Makes the recorded calls on the builder, whose source is then returned.
+     *
+     * @throws IOException the recording is truncated or malformed
+     */
+    static JavaSource replay(InputStream stream, URL url, Builder builder) throws IOException {
+        DataInputStream in = new DataInputStream(stream);
+        builder.setUrl(url);
+        for (int event = in.readUnsignedByte(); event != END; event = in.readUnsignedByte()) {
+            switch (event) {
+                case PACKAGE:
+                    PackageDef packageDef = new PackageDef(readString(in));
+                    readLocation(in, packageDef);
+                    builder.addPackage(packageDef);
+                    break;
+                case IMPORT:
+                    builder.addImport(readString(in));
+                    break;
+                case JAVADOC:
+                    builder.addJavaDoc(readString(in));
+                    break;
+                case JAVADOC_TAG:
+                    TagDef tagDef = new TagDef(readString(in), readString(in));
+                    readLocation(in, tagDef);
+                    builder.addJavaDocTag(tagDef);
+                    break;
+                case BEGIN_CLASS:
+                    ClassDef classDef = new ClassDef();
+                    classDef.setName(readString(in));
+                    readLocation(in, classDef);
+                    classDef.setType(readString(in));
+                    classDef.setModifiers(readModifiers(in));
+                    classDef.setTypeParameters(readTypeVariables(in));
+                    classDef.setExtends(readTypeSet(in));
+                    classDef.setImplements(readTypeSet(in));
+                    builder.beginClass(classDef);
+                    break;
+                case END_CLASS:
+                    builder.endClass();
+                    break;
+                case INITIALIZER:
+                    InitDef initDef = new InitDef();
+                    initDef.setBlockContent(readString(in));
+                    initDef.setStatic(in.readBoolean());
+                    readLocation(in, initDef);
+                    builder.addInitializer(initDef);
+                    break;
+                case BEGIN_CONSTRUCTOR:
+                    builder.beginConstructor();
+                    break;
+                case END_CONSTRUCTOR:
+                    builder.endConstructor(readMethod(in));
+                    break;
+                case BEGIN_METHOD:
+                    builder.beginMethod();
+                    break;
+                case END_METHOD:
+                    builder.endMethod(readMethod(in));
+                    break;
+                case BEGIN_FIELD:
+                    builder.beginField(readField(in));
+                    break;
+                case END_FIELD:
+                    builder.endField();
+                    break;
+                case PARAMETER:
+                    builder.addParameter(readField(in));
+                    break;
+                case ANNOTATION:
+                    AnnoDef annoDef = new AnnoDef(readType(in));
+                    readLocation(in, annoDef);
+                    builder.addAnnotation(annoDef);
+                    break;
+                default:
+                    throw new IOException("Unknown recorded call " + event);
+            }
+        }
+        return builder.getSource();
+    }
+
+    @Override
+    public void setModelWriterFactory(ModelWriterFactory modelWriterFactory) {
+        delegate.setModelWriterFactory(modelWriterFactory);
+    }
+
+    @Override
+    public void setUrl(URL url) {
+        delegate.setUrl(url);
+    }
+
+    @Override
+    public void addPackage(PackageDef packageDef) {
+        if (recordable) {
+            try {
+                out.writeByte(PACKAGE);
+                writeString(out, packageDef.getName());
+                writeLocation(out, packageDef);
+            } catch (IOException e) {
+                recordable = false;
+            }
+        }
+        delegate.addPackage(packageDef);
+    }
+
+    @Override
+    public void addImport(String importName) {
+        if (recordable) {
+            try {
+                out.writeByte(IMPORT);
+                writeString(out, importName);
+            } catch (IOException e) {
+                recordable = false;
+            }
+        }
+        delegate.addImport(importName);
+    }
+
+    @Override
+    public void addJavaDoc(String text) {
+        if (recordable) {
+            try {
+                out.writeByte(JAVADOC);
+                writeString(out, text);
+            } catch (IOException e) {
+                recordable = false;
+            }
+        }
+        delegate.addJavaDoc(text);
+    }
+
+    @Override
+    public void addJavaDocTag(TagDef tagDef) {
+        if (recordable) {
+            try {
+                out.writeByte(JAVADOC_TAG);
+                writeString(out, tagDef.getName());
+                writeString(out, tagDef.getText());
+                writeLocation(out, tagDef);
+            } catch (IOException e) {
+                recordable = false;
+            }
+        }
+        delegate.addJavaDocTag(tagDef);
+    }
+
+    @Override
+    public void beginClass(ClassDef classDef) {
+        if (recordable) {
+            try {
+                out.writeByte(BEGIN_CLASS);
+                writeString(out, classDef.getName());
+                writeLocation(out, classDef);
+                writeString(out, classDef.getType());
+                writeModifiers(out, classDef.getModifiers());
+                writeTypeVariables(out, classDef.getTypeParameters());
+                writeTypes(out, classDef.getExtends());
+                writeTypes(out, classDef.getImplements());
+            } catch (IOException e) {
+                recordable = false;
+            }
+        }
+        delegate.beginClass(classDef);
+    }
+
+    @Override
+    public void endClass() {
+        record(END_CLASS);
+        delegate.endClass();
+    }
+
+    @Override
+    public void addInitializer(InitDef initDef) {
+        if (recordable) {
+            try {
+                out.writeByte(INITIALIZER);
+                writeString(out, initDef.getBlockContent());
+                out.writeBoolean(initDef.isStatic());
+                writeLocation(out, initDef);
+            } catch (IOException e) {
+                recordable = false;
+            }
+        }
+        delegate.addInitializer(initDef);
+    }
+
+    @Override
+    public void beginConstructor() {
+        record(BEGIN_CONSTRUCTOR);
+        delegate.beginConstructor();
+    }
+
+    @Override
+    public void endConstructor(MethodDef methodDef) {
+        recordMethod(END_CONSTRUCTOR, methodDef);
+        delegate.endConstructor(methodDef);
+    }
+
+    @Override
+    public void beginMethod() {
+        record(BEGIN_METHOD);
+        delegate.beginMethod();
+    }
+
+    @Override
+    public void endMethod(MethodDef methodDef) {
+        recordMethod(END_METHOD, methodDef);
+        delegate.endMethod(methodDef);
+    }
+
+    @Override
+    public void beginField(FieldDef fieldDef) {
+        recordField(BEGIN_FIELD, fieldDef);
+        delegate.beginField(fieldDef);
+    }
+
+    @Override
+    public void endField() {
+        record(END_FIELD);
+        delegate.endField();
+    }
+
+    @Override
+    public void addParameter(FieldDef fieldDef) {
+        recordField(PARAMETER, fieldDef);
+        delegate.addParameter(fieldDef);
+    }
+
+    @Override
+    public void addAnnotation(AnnoDef annoDef) {
+        if (!annoDef.getArgs().isEmpty()) {
+            recordable = false;
+        } else if (recordable) {
+            try {
+                out.writeByte(ANNOTATION);
+                writeType(out, annoDef.getTypeDef());
+                writeLocation(out, annoDef);
+            } catch (IOException e) {
+                recordable = false;
+            }
+        }
+        delegate.addAnnotation(annoDef);
+    }
+
+    @Override
+    public void addArgument(ExpressionDef argument) {
+        recordable = false;
+        delegate.addArgument(argument);
+    }
+
+    @Override
+    public JavaSource getSource() {
+        JavaSource source = delegate.getSource();
+        if (recordable && source != null) {
+            record(END);
+            if (recordable)
+                recordings.put(source, bytes.toByteArray());
+            // the recording is complete, a second call must not add to it
+            recordable = false;
+        }
+        return source;
+    }
+
+    private void record(int event) {
+        if (recordable) {
+            try {
+                out.writeByte(event);
+            } catch (IOException e) {
+                recordable = false;
+            }
+        }
+    }
+
+    private void recordMethod(int event, MethodDef methodDef) {
+        if (recordable) {
+            try {
+                out.writeByte(event);
+                writeString(out, methodDef.getName());
+                writeLocation(out, methodDef);
+                writeTypeVariables(out, methodDef.getTypeParams());
+                writeType(out, methodDef.getReturnType());
+                writeModifiers(out, methodDef.getModifiers());
+                writeTypes(out, methodDef.getExceptions());
+                out.writeBoolean(methodDef.isConstructor());
+                out.writeInt(methodDef.getDimensions());
+                writeString(out, methodDef.getBody());
+            } catch (IOException e) {
+                recordable = false;
+            }
+        }
+    }
+
+    private void recordField(int event, FieldDef fieldDef) {
+        if (recordable) {
+            try {
+                out.writeByte(event);
+                writeString(out, fieldDef.getName());
+                writeLocation(out, fieldDef);
+                writeType(out, fieldDef.getType());
+                writeModifiers(out, fieldDef.getModifiers());
+                out.writeInt(fieldDef.getDimensions());
+                out.writeBoolean(fieldDef.isVarArgs());
+                out.writeBoolean(fieldDef.isEnumConstant());
+                writeString(out, fieldDef.getBody());
+            } catch (IOException e) {
+                recordable = false;
+            }
+        }
+    }
+
+    private static MethodDef readMethod(DataInput in) throws IOException {
+        MethodDef methodDef = new MethodDef();
+        methodDef.setName(readString(in));
+        readLocation(in, methodDef);
+        methodDef.setTypeParams(readTypeVariables(in));
+        methodDef.setReturnType(readType(in));
+        methodDef.setModifiers(readModifiers(in));
+        methodDef.setExceptions(readTypeSet(in));
+        methodDef.setConstructor(in.readBoolean());
+        methodDef.setDimensions(in.readInt());
+        methodDef.setBody(readString(in));
+        return methodDef;
+    }
+
+    private static FieldDef readField(DataInput in) throws IOException {
+        FieldDef fieldDef = new FieldDef(readString(in));
+        readLocation(in, fieldDef);
+        fieldDef.setType(readType(in));
+        fieldDef.setModifiers(readModifiers(in));
+        fieldDef.setDimensions(in.readInt());
+        fieldDef.setVarArgs(in.readBoolean());
+        fieldDef.setEnumConstant(in.readBoolean());
+        fieldDef.setBody(readString(in));
+        return fieldDef;
+    }
+
+    private static void writeLocation(DataOutput out, LocatedDef def) throws IOException {
+        out.writeInt(def.getLineNumber());
+        out.writeInt(def.getColumnNumber());
+    }
+
+    private static void readLocation(DataInput in, LocatedDef def) throws IOException {
+        def.setLineNumber(in.readInt());
+        def.setColumnNumber(in.readInt());
+    }
+
+    /**
+     * Writes a string of any length, <code>null</code> included;
+     * <code>writeUTF()</code> is limited to 64k.
+     */
+    private static void writeString(DataOutput out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] data = value.getBytes("UTF-8");
+        out.writeInt(data.length);
+        out.write(data);
+    }
+
+    private static String readString(DataInput in) throws IOException {
+        int length = in.readInt();
+        if (length == -1)
+            return null;
+        byte[] data = new byte[length];
+        in.readFully(data);
+        return new String(data, "UTF-8");
+    }
+
+    private static void writeModifiers(DataOutput out, Set<String> modifiers) throws IOException {
+        out.writeShort(modifiers.size());
+        for (String modifier : modifiers) {
+            out.writeUTF(modifier);
+        }
+    }
+
+    private static Set<String> readModifiers(DataInput in) throws IOException {
+        int size = in.readUnsignedShort();
+        Set<String> modifiers = new LinkedHashSet<String>();
+        for (int i = 0; i < size; i++) {
+            modifiers.add(in.readUTF());
+        }
+        return modifiers;
+    }
+
+    private static void writeType(DataOutput out, TypeDef typeDef) throws IOException {
+        if (typeDef == null) {
+            out.writeByte(TYPE_NONE);
+            return;
+        }
+        if (typeDef instanceof WildcardTypeDef) {
+            WildcardTypeDef wildcard = (WildcardTypeDef)typeDef;
+            out.writeByte(TYPE_WILDCARD);
+            writeType(out, wildcard.getTypeDef());
+            writeString(out, wildcard.getWildcardExpressionType());
+        } else {
+            out.writeByte(TYPE_PLAIN);
+            writeString(out, typeDef.getName());
+        }
+        out.writeInt(typeDef.getDimensions());
+        writeTypes(out, typeDef.getActualArgumentTypes());
+    }
+
+    private static TypeDef readType(DataInput in) throws IOException {
+        TypeDef typeDef;
+        switch (in.readUnsignedByte()) {
+            case TYPE_NONE:
+                return null;
+            case TYPE_WILDCARD:
+                TypeDef bound = readType(in);
+                String expression = readString(in);
+                typeDef = bound != null ? new WildcardTypeDef(bound, expression)
+                        : new WildcardTypeDef();
+                break;
+            case TYPE_PLAIN:
+                typeDef = new TypeDef(readString(in));
+                break;
+            default:
+                throw new IOException("Unknown recorded type");
+        }
+        typeDef.setDimensions(in.readInt());
+        typeDef.setActualArgumentTypes(readTypes(in));
+        return typeDef;
+    }
+
+    /**
+     * Writes a list or set of types, <code>null</code> included.
+     */
+    private static void writeTypes(DataOutput out, Iterable<TypeDef> types) throws IOException {
+        if (types == null) {
+            out.writeShort(-1);
+            return;
+        }
+        List<TypeDef> list = new ArrayList<TypeDef>();
+        for (TypeDef typeDef : types) {
+            list.add(typeDef);
+        }
+        out.writeShort(list.size());
+        for (TypeDef typeDef : list) {
+            writeType(out, typeDef);
+        }
+    }
+
+    private static List<TypeDef> readTypes(DataInput in) throws IOException {
+        int size = in.readShort();
+        if (size == -1)
+            return null;
+        List<TypeDef> types = new ArrayList<TypeDef>(size);
+        for (int i = 0; i < size; i++) {
+            types.add(readType(in));
+        }
+        return types;
+    }
+
+    private static Set<TypeDef> readTypeSet(DataInput in) throws IOException {
+        List<TypeDef> types = readTypes(in);
+        return types != null ? new LinkedHashSet<TypeDef>(types) : null;
+    }
+
+    private static void writeTypeVariables(DataOutput out, List<TypeVariableDef> variables)
+            throws IOException {
+        if (variables == null) {
+            out.writeShort(-1);
+            return;
+        }
+        out.writeShort(variables.size());
+        for (TypeVariableDef variable : variables) {
+            writeString(out, variable.getName());
+            writeTypes(out, variable.getBounds());
+        }
+    }
+
+    private static List<TypeVariableDef> readTypeVariables(DataInput in) throws IOException {
+        int size = in.readShort();
+        if (size == -1)
+            return null;
+        List<TypeVariableDef> variables = new LinkedList<TypeVariableDef>();
+        for (int i = 0; i < size; i++) {
+            variables.add(new TypeVariableDef(readString(in), readTypes(in)));
+        }
+        return variables;
+    }
+}
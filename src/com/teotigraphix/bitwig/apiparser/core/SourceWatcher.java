@@ -0,0 +1,216 @@
+////////////////////////////////////////////////////////////////////////////////
+// Copyright 2014 Michael Schmalle - Teoti Graphix, LLC
+// 
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+// 
+// http://www.apache.org/licenses/LICENSE-2.0 
+// 
+// Unless required by applicable law or agreed to in writing, software 
+// distributed under the License is distributed on an "AS IS" BASIS, 
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and 
+// limitations under the License
+// 
+// Author: Michael Schmalle, Principal Architect
+// mschmalle at teotigraphix dot com
+////////////////////////////////////////////////////////////////////////////////
+
+package com.teotigraphix.bitwig.apiparser.core;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import com.thoughtworks.qdox.model.JavaSource;
+import com.thoughtworks.qdox.parser.ParseException;
+
+/**
+ * Watches the source directory of a parsed and built {@link APIParser} and
+ * rebuilds the changed classes.
+ * <p>
+ * Events are collected until the directory has been quiet for the
+ * {@link #getDebounce() debounce} interval, the touched sources are then
+ * {@link APIParser#refresh(Collection) refreshed} in the warm model and
+ * {@link APIParser#build() built}.
+ *
+ * @author Michael Schmalle
+ * @since 1.0
+ */
+public class SourceWatcher implements Closeable {
+
+    private APIParser parser;
+
+    private long debounce = 50;
+
+    private WatchService watchService;
+
+    private Map<WatchKey, Path> directories = new HashMap<WatchKey, Path>();
+
+    /**
+     * Returns the milliseconds without events that end a burst, default 50.
+     */
+    public long getDebounce() {
+        return debounce;
+    }
+
+    public void setDebounce(long debounce) {
+        this.debounce = debounce;
+    }
+
+    public SourceWatcher(APIParser parser) throws IOException {
+        this.parser = parser;
+        watchService = FileSystems.getDefault().newWatchService();
+        register(parser.getConfig().getSourceDirectory().toPath(), null);
+    }
+
+    /**
+     * Watches until {@link #close()} is called from another thread.
+     */
+    public void run() throws InterruptedException {
+        Set<File> pending = new LinkedHashSet<File>();
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                do {
+                    collect(key, pending);
+                    key = watchService.poll(debounce, TimeUnit.MILLISECONDS);
+                } while (key != null);
+
+                if (!pending.isEmpty()) {
+                    rebuild(pending);
+                    pending.clear();
+                }
+            }
+        } catch (ClosedWatchServiceException e) {
+            // closed
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        watchService.close();
+    }
+
+    /**
+     * Called after the files have been rebuilt.
+     */
+    protected void rebuilt(Collection<File> files, long nanos) {
+    }
+
+    /**
+     * Called when a rebuild fails, the watcher keeps running.
+     */
+    protected void failed(Exception e) {
+        e.printStackTrace();
+    }
+
+    private void rebuild(Collection<File> files) {
+        long start = System.nanoTime();
+        ParseException failure = null;
+        try {
+            try {
+                parser.refresh(files);
+            } catch (ParseException e) {
+                // build what did parse
+                failure = e;
+            }
+            parser.build();
+        } catch (IOException e) {
+            failed(e);
+            return;
+        } catch (RuntimeException e) {
+            // a source the model can not take, such as a malformed @since
+            failed(e);
+            return;
+        }
+
+        if (failure != null)
+            failed(failure);
+        else
+            rebuilt(files, System.nanoTime() - start);
+    }
+
+    private void collect(WatchKey key, Set<File> pending) {
+        Path directory = directories.get(key);
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == OVERFLOW) {
+                addAll(pending);
+                continue;
+            }
+
+            Path path = directory.resolve((Path)event.context());
+            if (event.kind() == ENTRY_CREATE && Files.isDirectory(path)) {
+                register(path, pending);
+            } else if (path.toString().endsWith(IWriterConstants.JAVA)) {
+                pending.add(path.toFile());
+            }
+        }
+        if (!key.reset())
+            directories.remove(key);
+    }
+
+    /**
+     * Registers the directory tree, adding the sources found in it.
+     */
+    private void register(Path root, final Set<File> pending) {
+        try {
+            Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs)
+                        throws IOException {
+                    WatchKey key = dir.register(watchService, ENTRY_CREATE, ENTRY_DELETE,
+                            ENTRY_MODIFY);
+                    directories.put(key, dir);
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                    if (pending != null && file.toString().endsWith(IWriterConstants.JAVA))
+                        pending.add(file.toFile());
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException e) {
+            failed(e);
+        }
+    }
+
+    /**
+     * Events were lost, refresh every source on disk and in the model.
+     */
+    private void addAll(Set<File> pending) {
+        register(parser.getConfig().getSourceDirectory().toPath(), pending);
+        for (JavaSource source : parser.getSources()) {
+            try {
+                pending.add(new File(source.getURL().toURI()));
+            } catch (URISyntaxException e) {
+                // not a file source
+            }
+        }
+    }
+}
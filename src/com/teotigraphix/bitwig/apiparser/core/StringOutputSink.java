@@ -0,0 +1,112 @@
+////////////////////////////////////////////////////////////////////////////////
+// Copyright 2014 Michael Schmalle - Teoti Graphix, LLC
+// 
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+// 
+// http://www.apache.org/licenses/LICENSE-2.0 
+// 
+// Unless required by applicable law or agreed to in writing, software 
+// distributed under the License is distributed on an "AS IS" BASIS, 
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and 
+// limitations under the License
+// 
+// Author: Michael Schmalle, Principal Architect
+// mschmalle at teotigraphix dot com
+////////////////////////////////////////////////////////////////////////////////
+
+package com.teotigraphix.bitwig.apiparser.core;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps each target in memory as a <code>String</code>, or a byte array for
+ * binary targets, for tests and tooling that post-process the output.
+ *
+ * @author Michael Schmalle
+ * @since 1.0
+ */
+public class StringOutputSink implements IOutputSink {
+
+    private Map<File, String> contents = new ConcurrentHashMap<File, String>();
+
+    private Map<File, byte[]> data = new ConcurrentHashMap<File, byte[]>();
+
+    public Map<File, String> getContents() {
+        return contents;
+    }
+
+    public String getContent(File target) {
+        return contents.get(target);
+    }
+
+    public byte[] getData(File target) {
+        return data.get(target);
+    }
+
+    @Override
+    public Writer openWriter(final File target) throws IOException {
+        return new StringWriter() {
+            @Override
+            public void close() throws IOException {
+                contents.put(target, toString());
+            }
+        };
+    }
+
+    @Override
+    public OutputStream openStream(final File target) throws IOException {
+        return new ByteArrayOutputStream() {
+            @Override
+            public void close() throws IOException {
+                data.put(target, toByteArray());
+            }
+        };
+    }
+
+    /**
+     * A target is only kept once it is closed, there is nothing to discard.
+     */
+    @Override
+    public void abort(File target) throws IOException {
+    }
+
+    @Override
+    public void delete(File target) throws IOException {
+        contents.remove(target);
+        data.remove(target);
+    }
+
+    @Override
+    public boolean exists(File target) {
+        return contents.containsKey(target) || data.containsKey(target);
+    }
+
+    @Override
+    public boolean isPersistent() {
+        return true;
+    }
+
+    @Override
+    public Map<String, Long> getCounts() {
+        return Collections.emptyMap();
+    }
+
+    @Override
+    public void close() throws IOException {
+    }
+
+    @Override
+    public void discard() throws IOException {
+    }
+}
@@ -0,0 +1,321 @@
+////////////////////////////////////////////////////////////////////////////////
+// Copyright 2014 Michael Schmalle - Teoti Graphix, LLC
+// 
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+// 
+// http://www.apache.org/licenses/LICENSE-2.0 
+// 
+// Unless required by applicable law or agreed to in writing, software 
+// distributed under the License is distributed on an "AS IS" BASIS, 
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and 
+// limitations under the License
+// 
+// Author: Michael Schmalle, Principal Architect
+// mschmalle at teotigraphix dot com
+////////////////////////////////////////////////////////////////////////////////
+
+package com.teotigraphix.bitwig.apiparser.core;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import org.apache.commons.io.IOUtils;
+
+import com.teotigraphix.bitwig.apiparser.writer.JsModelWriter;
+import com.thoughtworks.qdox.model.JavaClass;
+import com.thoughtworks.qdox.model.JavaField;
+import com.thoughtworks.qdox.model.JavaMethod;
+import com.thoughtworks.qdox.model.JavaParameter;
+import com.thoughtworks.qdox.model.JavaSource;
+
+/**
+ * Emits a JavaScript prototype stub per class into the output directory.
+ * <p>
+ * With more than one {@link ParserConfig#getThreadCount() thread} the stubs
+ * are rendered on a fork-join pool once the walk is complete, with
+ * {@link ParserConfig#isIncremental() incremental} builds only changed
+ * classes are rendered, see {@link BuildManifest}. After an
+ * {@link APIParser#refresh(java.util.Collection) refresh} only the refreshed
+ * classes are rendered. A partial or filtered build renders the classes it
+ * is given and leaves the other stubs as they are.
+ *
+ * @author Michael Schmalle
+ * @since 1.0
+ */
+class StubEmitter implements IModelEmitter {
+
+    private ParserConfig config;
+
+    private PhaseTimer timer;
+
+    private APIParser parser;
+
+    private BuildManifest manifest;
+
+    private List<Callable<Void>> tasks;
+
+    private Set<String> changedClasses;
+
+    private Set<String> visitedClasses;
+
+    private boolean partial;
+
+    // one writer per rendering thread, retargeted for each stub
+    private ThreadLocal<JsModelWriter> writers = new ThreadLocal<JsModelWriter>() {
+        @Override
+        protected JsModelWriter initialValue() {
+            JsModelWriter writer = new JsModelWriter(config.getVersion());
+            writer.setCommentFormatter(parser.getCommentFormatter());
+            writer.setTypeResolver(config.getTypeResolver());
+            writer.setDocTags(parser.getDocTags());
+            writer.setSignatures(parser.getSignatures());
+            return writer;
+        }
+    };
+
+    StubEmitter(ParserConfig config, PhaseTimer timer, boolean partial) {
+        this.config = config;
+        this.timer = timer;
+        this.partial = partial;
+    }
+
+    @Override
+    public String getName() {
+        return PhaseMetrics.STUBS;
+    }
+
+    @Override
+    public void beginModel(APIParser parser) throws IOException {
+        this.parser = parser;
+
+        // a sink written whole needs every stub in each build
+        boolean whole = !config.getOutputSink().isPersistent();
+
+        manifest = null;
+        if (config.isIncremental() && !whole) {
+            manifest = new BuildManifest(new File(config.getOutputDirectory(),
+                    BuildManifest.FILE_NAME), toGenerator());
+            manifest.load();
+        }
+
+        tasks = new ArrayList<Callable<Void>>();
+        visitedClasses = new HashSet<String>();
+
+        if (partial || whole)
+            return;
+
+        changedClasses = parser.getChangedClasses();
+        for (String removed : parser.getRemovedClasses()) {
+            String name = removed.substring(removed.lastIndexOf('.') + 1);
+            config.getOutputSink().delete(
+                    new File(config.getOutputDirectory(), name + IWriterConstants.JS));
+        }
+    }
+
+    @Override
+    public void visitClass(final JavaClass javaClass) throws IOException {
+        visitedClasses.add(javaClass.getFullyQualifiedName());
+        // a stub deleted outside of the tool is rendered again
+        if (changedClasses != null && !changedClasses.contains(javaClass.getFullyQualifiedName())
+                && config.getOutputSink().exists(toStubFile(javaClass))) {
+            if (manifest != null)
+                manifest.retain(toSourceKey(javaClass.getSource()),
+                        toStubFile(javaClass).getName());
+            timer.count(PhaseMetrics.COUNT_SKIPPED, 1);
+            return;
+        }
+
+        String sourceHash = null;
+        if (manifest != null) {
+            String source = toSourceKey(javaClass.getSource());
+            File stub = toStubFile(javaClass);
+            sourceHash = BuildManifest.hash(IOUtils.toByteArray(javaClass.getSource().getURL()));
+            if (manifest.isUpToDate(source, stub.getName(), sourceHash)
+                    && config.getOutputSink().exists(stub)) {
+                manifest.retain(source, stub.getName());
+                timer.count(PhaseMetrics.COUNT_SKIPPED, 1);
+                return;
+            }
+        }
+
+        if (config.getThreadCount() == 1) {
+            buildStub(javaClass, sourceHash);
+            return;
+        }
+
+        // qdox resolves types lazily into unsynchronized caches, resolve
+        // everything the writer touches before the workers share the model
+        resolveTypes(javaClass);
+        for (JavaMethod method : javaClass.getMethods()) {
+            parser.getDocTags().getTags(method);
+            parser.getSignatures().getSignature(method);
+        }
+
+        final String hash = sourceHash;
+        tasks.add(new Callable<Void>() {
+            @Override
+            public Void call() throws IOException {
+                long cpu = PhaseTimer.cpuTime();
+                long allocated = PhaseTimer.allocatedBytes();
+                buildStub(javaClass, hash);
+                timer.addWorkerUsage(PhaseTimer.cpuTime() - cpu, PhaseTimer.allocatedBytes()
+                        - allocated);
+                return null;
+            }
+        });
+    }
+
+    @Override
+    public void visitMethod(JavaMethod method) throws IOException {
+    }
+
+    @Override
+    public void endModel() throws IOException {
+        if (!tasks.isEmpty())
+            buildStubsParallel();
+
+        if (manifest != null) {
+            if (partial) {
+                manifest.retainAll();
+            } else {
+                // a filtered build keeps the stubs of the classes it leaves out
+                for (JavaClass javaClass : parser.getClasses()) {
+                    if (!visitedClasses.contains(javaClass.getFullyQualifiedName()))
+                        manifest.retain(toSourceKey(javaClass.getSource()),
+                                toStubFile(javaClass).getName());
+                }
+            }
+            for (String stub : manifest.getRemovedStubs()) {
+                config.getOutputSink().delete(new File(config.getOutputDirectory(), stub));
+            }
+            manifest.save();
+        }
+    }
+
+    private void buildStubsParallel() throws IOException {
+        ForkJoinPool pool = new ForkJoinPool(config.getThreadCount());
+        try {
+            for (Future<Void> future : pool.invokeAll(tasks)) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Stub generation interrupted");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException)
+                throw (IOException)cause;
+            if (cause instanceof RuntimeException)
+                throw (RuntimeException)cause;
+            throw new IOException(cause);
+        } finally {
+            pool.shutdown();
+            tasks.clear();
+        }
+    }
+
+    private void buildStub(JavaClass javaClass, String sourceHash) throws IOException {
+        File target = toStubFile(javaClass);
+        IOutputSink sink = config.getOutputSink();
+
+        long io = System.nanoTime();
+        CountingWriter counting = new CountingWriter(sink.openWriter(target));
+        io = System.nanoTime() - io;
+
+        Writer out = counting;
+        HashingWriter hashing = null;
+        if (manifest != null)
+            out = hashing = new HashingWriter(out);
+        boolean rendered = false;
+        try {
+            JsModelWriter writer = writers.get();
+            writer.reset(out);
+            writer.writeSource(javaClass.getSource());
+
+            long flush = System.nanoTime();
+            writer.flush();
+            io += System.nanoTime() - flush;
+            rendered = true;
+        } finally {
+            long close = System.nanoTime();
+            if (rendered)
+                out.close();
+            else
+                sink.abort(target);
+            io += System.nanoTime() - close;
+        }
+
+        timer.count(PhaseMetrics.COUNT_CLASSES, 1);
+        timer.count(PhaseMetrics.COUNT_METHODS, javaClass.getMethods().size());
+        timer.count(PhaseMetrics.COUNT_FILES, 1);
+        timer.count(PhaseMetrics.COUNT_BYTES, counting.getCount());
+        timer.count(PhaseMetrics.COUNT_IO_NANOS, io);
+
+        if (manifest != null) {
+            // the stub of a class renamed or removed from the source
+            String source = toSourceKey(javaClass.getSource());
+            Set<String> stubs = new HashSet<String>();
+            for (JavaClass sourceClass : javaClass.getSource().getClasses()) {
+                stubs.add(toStubFile(sourceClass).getName());
+            }
+            for (String previousStub : manifest.getPreviousStubs(source)) {
+                if (!stubs.contains(previousStub))
+                    sink.delete(new File(config.getOutputDirectory(), previousStub));
+            }
+
+            manifest.put(source, sourceHash, target.getName(), hashing.getHash());
+        }
+    }
+
+    /**
+     * Returns what the stubs are rendered with: the writers, the API version
+     * and a digest of the type rules.
+     */
+    private String toGenerator() throws IOException {
+        String rules = BuildManifest.hash(config.getTypeResolver().getRules().getBytes("UTF-8"));
+        return BuildManifest.GENERATOR_VERSION + " " + config.getVersion() + " " + rules;
+    }
+
+    private File toStubFile(JavaClass javaClass) {
+        String fileName = javaClass.getName();
+        return new File(config.getOutputDirectory(), fileName + IWriterConstants.JS);
+    }
+
+    private String toSourceKey(JavaSource source) {
+        String root = config.getSourceDirectory().getAbsoluteFile().toURI().toString();
+        String url = source.getURL().toString();
+        return url.startsWith(root) ? url.substring(root.length()) : url;
+    }
+
+    private static void resolveTypes(JavaClass javaClass) {
+        javaClass.getGenericFullyQualifiedName();
+        for (JavaClass implemented : javaClass.getImplementedInterfaces()) {
+            implemented.getName();
+        }
+        for (JavaField field : javaClass.getFields()) {
+            field.getType().getGenericCanonicalName();
+        }
+        for (JavaMethod method : javaClass.getMethods()) {
+            method.getReturns().getGenericFullyQualifiedName();
+            for (JavaParameter parameter : method.getParameters()) {
+                parameter.getType().getGenericFullyQualifiedName();
+            }
+        }
+        for (JavaClass nested : javaClass.getNestedClasses()) {
+            resolveTypes(nested);
+        }
+    }
+}
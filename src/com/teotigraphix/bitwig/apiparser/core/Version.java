@@ -19,36 +19,94 @@
 
 package com.teotigraphix.bitwig.apiparser.core;
 
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
 /**
+ * An immutable, interned version number; instances are obtained through
+ * {@link #valueOf(String)} or {@link #fromSince(String)} and parsed once.
+ *
  * @author Michael Schmalle
  * @since 1.0
  */
-public class Version implements Comparable<Version> {
+public final class Version implements Comparable<Version> {
+
+    private static final String PRODUCT = "Bitwig Studio";
+
+    private static final ConcurrentMap<String, Version> versions = new ConcurrentHashMap<String, Version>();
+
+    private static final ConcurrentMap<String, Version> sinceValues = new ConcurrentHashMap<String, Version>();
 
-    private String version;
+    private final String version;
+
+    private final int[] parts;
+
+    private final int hashCode;
 
     public final String get() {
         return this.version;
     }
 
-    public Version(String version) {
+    private Version(String version) {
+        this.version = version;
+        this.parts = parse(version);
+
+        // trailing zeros are ignored so equal versions ("1.1", "1.1.0") hash alike
+        int length = parts.length;
+        while (length > 0 && parts[length - 1] == 0)
+            length--;
+        int hash = 1;
+        for (int i = 0; i < length; i++)
+            hash = 31 * hash + parts[i];
+        this.hashCode = hash;
+    }
+
+    /**
+     * Returns the interned version for a dotted number such as
+     * <code>1.1</code>.
+     */
+    public static Version valueOf(String version) {
         if (version == null)
             throw new IllegalArgumentException("Version can not be null");
-        if (!version.matches("[0-9]+(\\.[0-9]+)*"))
-            throw new IllegalArgumentException("Invalid version format");
-        this.version = version;
+        Version result = versions.get(version);
+        if (result == null) {
+            result = new Version(version);
+            Version previous = versions.putIfAbsent(version, result);
+            if (previous != null)
+                result = previous;
+        }
+        return result;
+    }
+
+    /**
+     * Returns the interned version of a <code>@since</code> tag value such as
+     * <code>Bitwig Studio 1.1</code>.
+     */
+    public static Version fromSince(String value) {
+        if (value == null)
+            throw new IllegalArgumentException("Version can not be null");
+        Version result = sinceValues.get(value);
+        if (result == null) {
+            result = valueOf(value.replace(PRODUCT, "").trim());
+            Version previous = sinceValues.putIfAbsent(value, result);
+            if (previous != null)
+                result = previous;
+        }
+        return result;
     }
 
     @Override
     public int compareTo(Version that) {
         if (that == null)
             return 1;
-        String[] thisParts = this.get().split("\\.");
-        String[] thatParts = that.get().split("\\.");
+        if (this == that)
+            return 0;
+        int[] thisParts = this.parts;
+        int[] thatParts = that.parts;
         int length = Math.max(thisParts.length, thatParts.length);
         for (int i = 0; i < length; i++) {
-            int thisPart = i < thisParts.length ? Integer.parseInt(thisParts[i]) : 0;
-            int thatPart = i < thatParts.length ? Integer.parseInt(thatParts[i]) : 0;
+            int thisPart = i < thisParts.length ? thisParts[i] : 0;
+            int thatPart = i < thatParts.length ? thatParts[i] : 0;
             if (thisPart < thatPart)
                 return -1;
             if (thisPart > thatPart)
@@ -67,4 +125,45 @@ public class Version implements Comparable<Version> {
             return false;
         return this.compareTo((Version)that) == 0;
     }
+
+    @Override
+    public int hashCode() {
+        return hashCode;
+    }
+
+    @Override
+    public String toString() {
+        return version;
+    }
+
+    private static int[] parse(String version) {
+        int count = 1;
+        for (int i = 0; i < version.length(); i++) {
+            if (version.charAt(i) == '.')
+                count++;
+        }
+
+        int[] result = new int[count];
+        int part = 0;
+        int digits = 0;
+        long value = 0;
+        for (int i = 0; i <= version.length(); i++) {
+            char c = i < version.length() ? version.charAt(i) : '.';
+            if (c == '.') {
+                if (digits == 0)
+                    throw new IllegalArgumentException("Invalid version format");
+                result[part++] = (int)value;
+                digits = 0;
+                value = 0;
+            } else if (c >= '0' && c <= '9') {
+                value = value * 10 + (c - '0');
+                if (value > Integer.MAX_VALUE)
+                    throw new IllegalArgumentException("Invalid version format");
+                digits++;
+            } else {
+                throw new IllegalArgumentException("Invalid version format");
+            }
+        }
+        return result;
+    }
 }
@@ -19,8 +19,7 @@
 
 package com.teotigraphix.bitwig.apiparser.writer;
 
-import java.util.ListIterator;
-
+import com.teotigraphix.bitwig.apiparser.core.MethodSignature;
 import com.thoughtworks.qdox.model.JavaAnnotatedElement;
 import com.thoughtworks.qdox.model.JavaMethod;
 import com.thoughtworks.qdox.model.JavaParameter;
@@ -36,42 +35,54 @@ public class ChangesMethodWriter extends JsModelWriter {
         super("");
     }
 
+    /**
+     * Renders into the buffer of the enclosing report.
+     */
+    public ChangesMethodWriter(IndentWriter buffer) {
+        super("", buffer);
+    }
+
     @Override
     protected void commentHeader(JavaAnnotatedElement entity) {
         String comment = entity.getComment();
-        if ((comment != null && !comment.equals("")) || (entity.getTags().size() > 0)) {
-            int endIndex = comment.indexOf(".") + 1;
-            if (endIndex < 1)
-                endIndex = comment.length();
-            comment = comment.substring(0, endIndex).trim();
-            getBuffer().write(comment + "\n");
+        if ((comment != null && !comment.equals("")) || (getTags(entity).size() > 0)) {
+            getBuffer().write(getCommentFormatter().summarize(comment));
+            getBuffer().write("\n");
         }
     }
 
     @Override
     public ModelWriter writeMethod(JavaMethod method) {
+        writeSignature(method);
+        commentHeader(method);
 
-        String returnType = getJsType(method.getReturns().getGenericFullyQualifiedName());
+        return this;
+    }
+
+    /**
+     * Renders the method's signature without its comment.
+     */
+    public void writeSignature(JavaMethod method) {
+        MethodSignature signature = getSignatures().getSignature(method);
         getBuffer().write("<code>");
-        getBuffer().write(method.getName());
+        getBuffer().write(signature.getName());
         getBuffer().write(" (");
 
-        for (ListIterator<JavaParameter> iter = method.getParameters().listIterator(); iter
-                .hasNext();) {
-            writeParameter(iter.next());
-            if (iter.hasNext()) {
+        int count = signature.getParameterCount();
+        for (int i = 0; i < count; i++) {
+            if (i > 0)
                 getBuffer().write(", ");
-            }
+            if (i == count - 1 && signature.isVarArgs())
+                getBuffer().write("/*...*/");
+            getBuffer().write(signature.getParameterName(i));
+            getBuffer().write(":");
+            getBuffer().write(signature.getParameterType(i));
         }
 
         getBuffer().write(")");
         getBuffer().write(":");
-        getBuffer().write(returnType);
+        getBuffer().write(signature.getReturnType());
         getBuffer().write("</code><br/>");
-
-        commentHeader(method);
-
-        return this;
     }
 
     @Override
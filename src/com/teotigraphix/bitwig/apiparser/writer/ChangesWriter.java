@@ -19,105 +19,261 @@
 
 package com.teotigraphix.bitwig.apiparser.writer;
 
+import java.io.IOException;
+import java.io.Writer;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
 
+import com.teotigraphix.bitwig.apiparser.core.APIDiff;
+import com.teotigraphix.bitwig.apiparser.core.APIDiff.ClassChange;
+import com.teotigraphix.bitwig.apiparser.core.APIDiff.Kind;
+import com.teotigraphix.bitwig.apiparser.core.APIDiff.MethodChange;
 import com.teotigraphix.bitwig.apiparser.core.APIParser;
 import com.teotigraphix.bitwig.apiparser.core.IWriterConstants;
 import com.teotigraphix.bitwig.apiparser.core.Version;
 import com.thoughtworks.qdox.model.DocletTag;
 import com.thoughtworks.qdox.model.JavaClass;
 import com.thoughtworks.qdox.model.JavaMethod;
-import com.thoughtworks.qdox.writer.impl.IndentBuffer;
 
 /**
+ * Renders the since-version changes report.
+ * <p>
+ * Classes are added one at a time in report order, each rendering its
+ * sections into a buffer per version, {@link #write(Writer)} then streams the
+ * report out version by version. With a {@link #setDiff(APIDiff, String) diff}
+ * the report closes with the differences to the previous release, including
+ * those without a <code>@since</code> tag.
+ *
  * @author Michael Schmalle
  * @since 1.0
  */
 public class ChangesWriter {
 
-    private IndentBuffer buffer = new IndentBuffer();
-
     private APIParser parser;
 
+    private List<Version> versions;
+
+    private IndentWriter[] sections;
+
+    private ChangesMethodWriter methodWriter;
+
+    private APIDiff diff;
+
+    private String previousVersion;
+
     public ChangesWriter(APIParser parser) {
         this.parser = parser;
+        reset();
+    }
+
+    public APIDiff getDiff() {
+        return diff;
+    }
+
+    /**
+     * Sets the differences to the previous release, rendered once they are
+     * {@link APIDiff#complete() complete}.
+     */
+    public void setDiff(APIDiff diff, String previousVersion) {
+        this.diff = diff;
+        this.previousVersion = previousVersion;
+    }
+
+    /**
+     * Discards the classes added so far and picks up the parser's current
+     * versions.
+     */
+    public void reset() {
+        versions = new ArrayList<Version>(parser.getVersions());
+        Collections.sort(versions);
+        Collections.reverse(versions);
+
+        // the section buffers keep the capacity the previous report grew them to
+        IndentWriter[] previous = sections;
+        sections = new IndentWriter[versions.size()];
+        if (previous != null) {
+            for (int i = 0; i < Math.min(previous.length, sections.length); i++) {
+                if (previous[i] != null) {
+                    previous[i].reset();
+                    sections[i] = previous[i];
+                }
+            }
+        }
+    }
+
+    /**
+     * Renders the methods the class introduced in each version.
+     */
+    public void addClass(JavaClass javaClass) {
+        if (javaClass.isInner())
+            return;
+
+        for (int i = 0; i < versions.size(); i++) {
+            Version version = versions.get(i);
+            List<JavaMethod> methods = parser.getSinceMethods(version.get(), javaClass);
+            if (methods == null)
+                continue;
+
+            if (sections[i] == null)
+                sections[i] = new IndentWriter();
+            IndentWriter buffer = sections[i];
+
+            String extra = "";
+            if (introducedIn(version, javaClass)) {
+                extra = " - New";
+            }
+
+            buffer.write("\n");
+            buffer.write("<h2>" + javaClass.getName() + extra + "</h2>\n");
+            buffer.write("\n");
+
+            buffer.write("<ul>");
+            ChangesMethodWriter methodWriter = getMethodWriter(buffer);
+            for (JavaMethod method : methods) {
+                buffer.write("<li>");
+                methodWriter.writeMethod(method);
+                buffer.write("</li>\n");
+            }
+            buffer.write("</ul>");
+        }
     }
 
+    /**
+     * Renders the report of all the parser's classes into memory and returns
+     * it.
+     */
     public String write() {
-        List<JavaClass> classes = new ArrayList<JavaClass>(parser.getBuilder().getClasses());
+        reset();
+
+        List<JavaClass> classes = new ArrayList<JavaClass>(parser.getClasses());
         Collections.sort(classes, new ClassComparator());
+        for (JavaClass javaClass : classes) {
+            addClass(javaClass);
+        }
 
-        List<Version> vs = new ArrayList<Version>(parser.getVersions());
-        Collections.sort(vs);
-        Collections.reverse(vs);
+        IndentWriter buffer = new IndentWriter();
+        writeReport(buffer);
+        return buffer.toString();
+    }
+
+    /**
+     * Streams the report of the classes added so far into <code>out</code>.
+     */
+    public void write(Writer out) throws IOException {
+        IndentWriter buffer = new IndentWriter(out);
+        writeReport(buffer);
+        buffer.flush();
+    }
 
+    private void writeReport(IndentWriter buffer) {
         buffer.write("<h1>Contents</h1>");
 
         buffer.write("<ul>");
-        for (Version version : vs) {
+        for (Version version : versions) {
             buffer.write("\n");
             buffer.write("<li><a href=\"#" + version.get() + "\">Bitwig Studio " + version.get()
                     + "</a></li>\n");
         }
+        if (diff != null) {
+            buffer.write("\n");
+            buffer.write("<li><a href=\"#diff\">Changes from " + previousVersion + "</a></li>\n");
+        }
         buffer.write("</ul>");
 
-        for (Version version : vs) {
+        for (int i = 0; i < versions.size(); i++) {
+            Version version = versions.get(i);
             buffer.write("\n");
             buffer.write("<h1 id=\"" + version.get() + "\">Bitwig Studio " + version.get()
                     + "</h1>\n");
             buffer.write("\n");
 
-            for (JavaClass javaClass : classes) {
-                if (javaClass.isInner())
-                    continue;
+            if (sections[i] != null)
+                buffer.write(sections[i].toString());
+        }
 
-                StringBuilder sb = new StringBuilder();
-                boolean found = false;
+        if (diff != null)
+            writeDiff(buffer);
+    }
 
-                String extra = "";
-                if (introducedIn(version, javaClass)) {
-                    extra = " - New";
-                }
+    private void writeDiff(IndentWriter buffer) {
+        buffer.write("\n");
+        buffer.write("<h1 id=\"diff\">Changes from " + previousVersion + "</h1>\n");
 
-                sb.append("\n");
-                sb.append("<h2>" + javaClass.getName() + extra + "</h2>\n");
-                sb.append("\n");
-
-                sb.append("<ul>");
-                List<JavaMethod> list = parser.getSinceMethods(version.get());
-                List<JavaMethod> methods = new ArrayList<JavaMethod>(list);
-                Collections.sort(methods, new MethodComparator());
-                for (JavaMethod method : methods) {
-                    if (method.getDeclaringClass().equals(javaClass)) {
-                        String methodString = new ChangesMethodWriter().writeMethod(method)
-                                .toString();
-                        sb.append("<li>" + methodString + "</li>\n");
-                        found = true;
-                    }
-                }
-                sb.append("</ul>");
+        List<ClassChange> changes = new ArrayList<ClassChange>(diff.getChanges());
+        Collections.sort(changes, new Comparator<ClassChange>() {
+            @Override
+            public int compare(ClassChange e1, ClassChange e2) {
+                return e1.getName().compareTo(e2.getName());
+            }
+        });
 
-                if (found)
-                    buffer.write(sb.toString());
+        ChangesMethodWriter methodWriter = getMethodWriter(buffer);
+        for (ClassChange change : changes) {
+            buffer.write("\n");
+            buffer.write("<h2>" + change.getName() + toLabel(change.getKind()) + "</h2>\n");
+            buffer.write("\n");
+
+            buffer.write("<ul>");
+            if (change.isSupertypesChanged())
+                buffer.write("<li>Changed supertypes</li>\n");
+            for (MethodChange method : change.getMethods()) {
+                buffer.write("<li>");
+                if (method.getKind() == Kind.ADDED) {
+                    buffer.write("Added ");
+                    methodWriter.writeSignature(method.getCurrent());
+                } else if (method.getKind() == Kind.REMOVED) {
+                    buffer.write("Removed ");
+                    methodWriter.writeSignature(method.getPrevious());
+                } else {
+                    buffer.write("Changed ");
+                    if (method.isParametersChanged())
+                        buffer.write("parameters ");
+                    if (method.isParametersChanged() && method.isReturnsChanged())
+                        buffer.write("and ");
+                    if (method.isReturnsChanged())
+                        buffer.write("return type ");
+                    methodWriter.writeSignature(method.getPrevious());
+                    methodWriter.writeSignature(method.getCurrent());
+                }
+                buffer.write("</li>\n");
             }
+            buffer.write("</ul>");
         }
+    }
 
-        return buffer.toString();
+    /**
+     * Returns the method writer shared by the report, rendering into the
+     * buffer.
+     */
+    private ChangesMethodWriter getMethodWriter(IndentWriter buffer) {
+        if (methodWriter == null) {
+            methodWriter = new ChangesMethodWriter(buffer);
+            methodWriter.setCommentFormatter(parser.getCommentFormatter());
+            methodWriter.setTypeResolver(parser.getConfig().getTypeResolver());
+            methodWriter.setDocTags(parser.getDocTags());
+            methodWriter.setSignatures(parser.getSignatures());
+        } else {
+            methodWriter.reset(buffer);
+        }
+        return methodWriter;
     }
 
-    class ClassComparator implements Comparator<JavaClass> {
-        @Override
-        public int compare(JavaClass e1, JavaClass e2) {
-            return e1.getName().compareTo(e2.getName());
+    private static String toLabel(Kind kind) {
+        switch (kind) {
+            case ADDED:
+                return " - New";
+            case REMOVED:
+                return " - Removed";
+            default:
+                return "";
         }
     }
 
-    class MethodComparator implements Comparator<JavaMethod> {
+    class ClassComparator implements Comparator<JavaClass> {
         @Override
-        public int compare(JavaMethod e1, JavaMethod e2) {
+        public int compare(JavaClass e1, JavaClass e2) {
             return e1.getName().compareTo(e2.getName());
         }
     }
@@ -125,7 +281,7 @@ public class ChangesWriter {
     private static boolean introducedIn(Version version, JavaClass javaClass) {
         DocletTag tag = javaClass.getTagByName(IWriterConstants.TAG_SINCE);
         if (tag != null) {
-            Version classVersion = new Version(tag.getValue().replace("Bitwig Studio", "").trim());
+            Version classVersion = Version.fromSince(tag.getValue());
             return classVersion.compareTo(version) == 0;
         }
         return false;
@@ -0,0 +1,127 @@
+////////////////////////////////////////////////////////////////////////////////
+// Copyright 2014 Michael Schmalle - Teoti Graphix, LLC
+// 
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+// 
+// http://www.apache.org/licenses/LICENSE-2.0 
+// 
+// Unless required by applicable law or agreed to in writing, software 
+// distributed under the License is distributed on an "AS IS" BASIS, 
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and 
+// limitations under the License
+// 
+// Author: Michael Schmalle, Principal Architect
+// mschmalle at teotigraphix dot com
+////////////////////////////////////////////////////////////////////////////////
+
+package com.teotigraphix.bitwig.apiparser.writer;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.teotigraphix.bitwig.apiparser.core.IWriterConstants;
+
+/**
+ * Formats doc comments for the writers, caching the result per comment so an
+ * element rendered by several writers, or in several builds, is formatted
+ * once.
+ * <p>
+ * The caches hold the most recently used comments up to the capacity, a
+ * formatter kept across the rebuilds of a watcher or the jobs of a batch does
+ * not keep every comment it has ever formatted.
+ * <p>
+ * Thread safe, one instance is shared by all writers of an
+ * {@link com.teotigraphix.bitwig.apiparser.core.APIParser}.
+ *
+ * @author Michael Schmalle
+ * @since 1.0
+ */
+public class CommentFormatter {
+
+    public static final int DEFAULT_CAPACITY = 4096;
+
+    private static final String LINE_PREFIX = " * ";
+
+    private Map<String, String> comments;
+
+    private Map<String, String> summaries;
+
+    public CommentFormatter() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param capacity the number of comments, and of summaries, cached
+     */
+    public CommentFormatter(int capacity) {
+        if (capacity < 1)
+            throw new IllegalArgumentException("Capacity must be at least 1");
+        comments = newCache(capacity);
+        summaries = newCache(capacity);
+    }
+
+    /**
+     * Returns the comment with every line after the first prefixed for a doc
+     * block.
+     */
+    public String format(String comment) {
+        String result = comments.get(comment);
+        if (result == null) {
+            result = reflow(comment);
+            comments.put(comment, result);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the first sentence of the comment, <code>""</code> if there is
+     * none.
+     */
+    public String summarize(String comment) {
+        if (comment == null)
+            return "";
+        String result = summaries.get(comment);
+        if (result == null) {
+            int endIndex = comment.indexOf('.') + 1;
+            if (endIndex < 1)
+                endIndex = comment.length();
+            result = comment.substring(0, endIndex).trim();
+            summaries.put(comment, result);
+        }
+        return result;
+    }
+
+    private static Map<String, String> newCache(final int capacity) {
+        return Collections.synchronizedMap(new LinkedHashMap<String, String>(16, 0.75f, true) {
+
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+                return size() > capacity;
+            }
+        });
+    }
+
+    private static String reflow(String comment) {
+        int index = comment.indexOf('\n');
+        if (index == -1)
+            return comment;
+
+        StringBuilder sb = new StringBuilder(comment.length() + 8 * LINE_PREFIX.length());
+        int start = 0;
+        while (index != -1) {
+            sb.append(comment, start, index);
+            sb.append(IWriterConstants.NL);
+            sb.append(LINE_PREFIX);
+            start = index + 1;
+            index = comment.indexOf('\n', start);
+        }
+        sb.append(comment, start, comment.length());
+        return sb.toString();
+    }
+}
@@ -0,0 +1,147 @@
+////////////////////////////////////////////////////////////////////////////////
+// Copyright 2014 Michael Schmalle - Teoti Graphix, LLC
+// 
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+// 
+// http://www.apache.org/licenses/LICENSE-2.0 
+// 
+// Unless required by applicable law or agreed to in writing, software 
+// distributed under the License is distributed on an "AS IS" BASIS, 
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and 
+// limitations under the License
+// 
+// Author: Michael Schmalle, Principal Architect
+// mschmalle at teotigraphix dot com
+////////////////////////////////////////////////////////////////////////////////
+
+package com.teotigraphix.bitwig.apiparser.writer;
+
+import java.io.Flushable;
+import java.io.IOException;
+
+/**
+ * An indenting output buffer with the same contract as qdox's
+ * <code>IndentBuffer</code> that appends either to an in-memory
+ * {@link StringBuilder} or straight through to a stream.
+ * <p>
+ * The <code>ModelWriter</code> methods can not throw checked exceptions, the
+ * first {@link IOException} of the target is kept, further output is dropped
+ * and the exception is rethrown by {@link #flush()}.
+ *
+ * @author Michael Schmalle
+ * @since 1.0
+ */
+public class IndentWriter implements Flushable {
+
+    private Appendable out;
+
+    private IOException error;
+
+    private String eol = "\n";
+
+    private String indentation = "\t";
+
+    private int depth;
+
+    private boolean newLine;
+
+    public IndentWriter() {
+        this(new StringBuilder());
+    }
+
+    public IndentWriter(Appendable out) {
+        this.out = out;
+    }
+
+    /**
+     * Clears the in-memory buffer for the next output, keeping the capacity
+     * the previous output grew it to.
+     */
+    public void reset() {
+        if (out instanceof StringBuilder)
+            ((StringBuilder)out).setLength(0);
+        reset(out);
+    }
+
+    /**
+     * Appends the next output to <code>out</code>, forgetting the indentation
+     * and any error of the previous output.
+     */
+    public void reset(Appendable out) {
+        this.out = out;
+        error = null;
+        depth = 0;
+        newLine = false;
+    }
+
+    public void setEol(String eol) {
+        this.eol = eol;
+    }
+
+    public void setIndentation(String indentation) {
+        this.indentation = indentation;
+    }
+
+    public void write(String s) {
+        checkNewLine();
+        append(s);
+    }
+
+    public void write(char c) {
+        checkNewLine();
+        if (error != null)
+            return;
+        try {
+            out.append(c);
+        } catch (IOException e) {
+            error = e;
+        }
+    }
+
+    public void newline() {
+        append(eol);
+        newLine = true;
+    }
+
+    public void indent() {
+        depth++;
+    }
+
+    public void deindent() {
+        depth--;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        if (error != null)
+            throw error;
+        if (out instanceof Flushable)
+            ((Flushable)out).flush();
+    }
+
+    @Override
+    public String toString() {
+        return out.toString();
+    }
+
+    private void checkNewLine() {
+        if (newLine) {
+            for (int i = 0; i < depth; i++)
+                append(indentation);
+            newLine = false;
+        }
+    }
+
+    private void append(String s) {
+        if (error != null)
+            return;
+        try {
+            out.append(s);
+        } catch (IOException e) {
+            error = e;
+        }
+    }
+}
@@ -19,13 +19,15 @@
 
 package com.teotigraphix.bitwig.apiparser.writer;
 
-import java.util.HashMap;
+import java.io.IOException;
+import java.io.Writer;
 import java.util.Iterator;
 import java.util.List;
 import java.util.ListIterator;
-import java.util.Map;
 
-import com.teotigraphix.bitwig.apiparser.core.IWriterConstants;
+import com.teotigraphix.bitwig.apiparser.core.DocTagNormalizer;
+import com.teotigraphix.bitwig.apiparser.core.MethodSignature;
+import com.teotigraphix.bitwig.apiparser.core.MethodSignatures;
 import com.thoughtworks.qdox.model.DocletTag;
 import com.thoughtworks.qdox.model.JavaAnnotatedElement;
 import com.thoughtworks.qdox.model.JavaAnnotation;
@@ -39,7 +41,6 @@ import com.thoughtworks.qdox.model.JavaParameter;
 import com.thoughtworks.qdox.model.JavaSource;
 import com.thoughtworks.qdox.model.expression.Expression;
 import com.thoughtworks.qdox.writer.ModelWriter;
-import com.thoughtworks.qdox.writer.impl.IndentBuffer;
 
 /**
  * @author Michael Schmalle
@@ -49,37 +50,119 @@ public class JsModelWriter implements ModelWriter {
 
     private int enumFieldCounter;
 
-    private IndentBuffer buffer = new IndentBuffer();
+    private IndentWriter buffer;
 
     private String version;
 
-    private static Map<String, String> typeConversions;
+    private CommentFormatter commentFormatter;
 
-    static {
-        typeConversions = new HashMap<String, String>();
+    private TypeResolver typeResolver;
 
-        typeConversions.put("int", "int");
-        typeConversions.put("double", "double");
-        typeConversions.put("boolean", "boolean");
+    private DocTagNormalizer docTags;
 
-        typeConversions.put("java.lang.Number", "number");
-        typeConversions.put("java.lang.Object", "Object");
-        typeConversions.put("java.lang.String", "string");
+    private MethodSignatures signatures;
 
-        typeConversions.put("byte[]", "byte[]");
-        typeConversions.put("java.lang.Object[]", "Object[]");
-        typeConversions.put("java.lang.String[]", "String[]");
+    private static final TypeResolver defaultTypeResolver = TypeResolver.createDefault();
 
-        typeConversions.put("org.mozilla.javascript.Callable", "function");
-        typeConversions.put("org.mozilla.javascript.Function", "function");
+    protected final IndentWriter getBuffer() {
+        return buffer;
     }
 
-    protected final IndentBuffer getBuffer() {
-        return buffer;
+    protected final CommentFormatter getCommentFormatter() {
+        if (commentFormatter == null)
+            commentFormatter = new CommentFormatter();
+        return commentFormatter;
     }
 
+    /**
+     * Shares a formatter, and so its cache, between writers.
+     */
+    public void setCommentFormatter(CommentFormatter commentFormatter) {
+        this.commentFormatter = commentFormatter;
+    }
+
+    protected final DocTagNormalizer getDocTags() {
+        if (docTags == null)
+            docTags = new DocTagNormalizer(getTypeResolver());
+        return docTags;
+    }
+
+    /**
+     * Shares the normalized method tags, and so their cache, between writers.
+     */
+    public void setDocTags(DocTagNormalizer docTags) {
+        this.docTags = docTags;
+    }
+
+    protected final MethodSignatures getSignatures() {
+        if (signatures == null)
+            signatures = new MethodSignatures(getTypeResolver(), getDocTags());
+        return signatures;
+    }
+
+    /**
+     * Shares the resolved method signatures, and so their cache, between
+     * writers.
+     */
+    public void setSignatures(MethodSignatures signatures) {
+        this.signatures = signatures;
+    }
+
+    protected final TypeResolver getTypeResolver() {
+        return typeResolver != null ? typeResolver : defaultTypeResolver;
+    }
+
+    /**
+     * Sets the resolver the JavaScript types are converted with, writers
+     * without one share a resolver with the Bitwig API's rules.
+     */
+    public void setTypeResolver(TypeResolver typeResolver) {
+        this.typeResolver = typeResolver;
+    }
+
+    /**
+     * Renders into memory, the result is returned by {@link #toString()}.
+     */
     public JsModelWriter(String version) {
+        this(version, new IndentWriter());
+    }
+
+    /**
+     * Streams the rendered output into <code>out</code>, {@link #flush()}
+     * once written.
+     */
+    public JsModelWriter(String version, Writer out) {
+        this(version, new IndentWriter(out));
+    }
+
+    protected JsModelWriter(String version, IndentWriter buffer) {
         this.version = version;
+        this.buffer = buffer;
+    }
+
+    /**
+     * Streams the next output into <code>out</code>, a writer keeps its
+     * settings and can render any number of classes in turn.
+     */
+    public void reset(Writer out) {
+        buffer.reset(out);
+        enumFieldCounter = 0;
+    }
+
+    /**
+     * Renders the next output into the buffer.
+     */
+    protected void reset(IndentWriter buffer) {
+        this.buffer = buffer;
+        enumFieldCounter = 0;
+    }
+
+    /**
+     * Flushes the streamed output, rethrowing the first error the target
+     * raised while rendering.
+     */
+    public void flush() throws IOException {
+        buffer.flush();
     }
 
     @Override
@@ -136,7 +219,7 @@ public class JsModelWriter implements ModelWriter {
                 buffer.newline();
             }
         } else if (cls.isEnum()) {
-            buffer.write(toSimpleName(cls.getGenericFullyQualifiedName()));
+            buffer.write(getTypeResolver().toSimpleName(cls.getGenericFullyQualifiedName()));
             buffer.write(" = {");
             buffer.indent();
             writeClassBody(cls);
@@ -280,26 +363,28 @@ public class JsModelWriter implements ModelWriter {
     }
 
     protected void commentHeader(JavaAnnotatedElement entity) {
-        if ((entity.getComment() != null && !entity.getComment().equals(""))
-                || (entity.getTags().size() > 0)) {
+        String comment = entity.getComment();
+        List<DocletTag> tags = getTags(entity);
+        boolean hasComment = comment != null && comment.length() > 0;
+        if (hasComment || tags.size() > 0) {
             buffer.write("/**");
             buffer.newline();
 
-            if (entity.getComment() != null && entity.getComment().length() > 0) {
+            if (hasComment) {
                 buffer.write(" * ");
-
-                buffer.write(entity.getComment().replaceAll(IWriterConstants.NL,
-                        IWriterConstants.NL + " * "));
-
+                buffer.write(getCommentFormatter().format(comment));
                 buffer.newline();
             }
 
-            if (entity.getTags().size() > 0) {
-                if (entity.getComment() != null && entity.getComment().length() > 0) {
+            if (tags.size() > 0) {
+                if (hasComment) {
                     buffer.write(" *");
                     buffer.newline();
                 }
-                for (DocletTag docletTag : entity.getTags()) {
+                MethodSignature signature = entity instanceof JavaMethod ? getSignatures()
+                        .getSignature((JavaMethod)entity) : null;
+                for (int i = 0; i < tags.size(); i++) {
+                    DocletTag docletTag = tags.get(i);
                     // TODO Bug?
                     if (docletTag == null)
                         continue;
@@ -311,10 +396,11 @@ public class JsModelWriter implements ModelWriter {
                         e.printStackTrace();
                     }
 
-                    if (docletTag.getName().equals(IWriterConstants.TAG_PARAM)) {
-                        prependType((JavaMethod)entity, docletTag.getValue());
-                    } else if (docletTag.getName().equals(IWriterConstants.TAG_RETURN)) {
-                        prependReturnType((JavaMethod)entity, docletTag.getValue());
+                    String type = signature != null ? signature.getTagType(i) : null;
+                    if (type != null) {
+                        buffer.write(" {");
+                        buffer.write(type);
+                        buffer.write("}");
                     }
 
                     if (docletTag.getValue().length() > 0) {
@@ -335,38 +421,21 @@ public class JsModelWriter implements ModelWriter {
         //        }
     }
 
-    private void prependReturnType(JavaMethod entity, String value) {
-        buffer.write(" {");
-        buffer.write(getJsType(entity.getReturns().getGenericFullyQualifiedName()));
-        buffer.write("}");
-    }
-
-    private void prependType(JavaMethod method, String description) {
-        String[] split = description.split(" ");
-        String name = split[0];
-        JavaParameter parameter = method.getParameterByName(name);
-        if (parameter != null && parameter.getType() != null) {
-            buffer.write(" {");
-            buffer.write(getJsType(parameter.getType().getGenericFullyQualifiedName()));
-            buffer.write("}");
-        }
+    /**
+     * Returns the tags of the element, normalized for a method.
+     */
+    protected final List<DocletTag> getTags(JavaAnnotatedElement entity) {
+        if (entity instanceof JavaMethod)
+            return getDocTags().getTags((JavaMethod)entity);
+        return entity.getTags();
     }
 
     protected String getJsType(String genericFullName) {
-        if (typeConversions.containsKey(genericFullName)) {
-            String name = typeConversions.get(genericFullName);
-            return name;
-        }
-        return toSimpleName(genericFullName);
+        return getTypeResolver().resolve(genericFullName);
     }
 
     @Override
     public String toString() {
         return buffer.toString();
     }
-
-    private static String toSimpleName(String qualifiedName) {
-        return qualifiedName.replace("com.bitwig.base.control_surface.iface.", "")
-                .replace("$", ".");
-    }
 }
@@ -0,0 +1,381 @@
+////////////////////////////////////////////////////////////////////////////////
+// Copyright 2014 Michael Schmalle - Teoti Graphix, LLC
+// 
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+// 
+// http://www.apache.org/licenses/LICENSE-2.0 
+// 
+// Unless required by applicable law or agreed to in writing, software 
+// distributed under the License is distributed on an "AS IS" BASIS, 
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and 
+// limitations under the License
+// 
+// Author: Michael Schmalle, Principal Architect
+// mschmalle at teotigraphix dot com
+////////////////////////////////////////////////////////////////////////////////
+
+package com.teotigraphix.bitwig.apiparser.writer;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.HashMap;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Map;
+
+import com.teotigraphix.bitwig.apiparser.core.DocTagNormalizer;
+import com.teotigraphix.bitwig.apiparser.core.MethodSignature;
+import com.teotigraphix.bitwig.apiparser.core.MethodSignatures;
+import com.thoughtworks.qdox.model.DocletTag;
+import com.thoughtworks.qdox.model.JavaAnnotatedElement;
+import com.thoughtworks.qdox.model.JavaAnnotation;
+import com.thoughtworks.qdox.model.JavaClass;
+import com.thoughtworks.qdox.model.JavaConstructor;
+import com.thoughtworks.qdox.model.JavaField;
+import com.thoughtworks.qdox.model.JavaInitializer;
+import com.thoughtworks.qdox.model.JavaMethod;
+import com.thoughtworks.qdox.model.JavaPackage;
+import com.thoughtworks.qdox.model.JavaParameter;
+import com.thoughtworks.qdox.model.JavaSource;
+import com.thoughtworks.qdox.writer.ModelWriter;
+
+/**
+ * Renders TypeScript declarations of the API, interfaces for classes and
+ * enums for enums.
+ * <p>
+ * Types are converted by the same {@link TypeResolver} as the JavaScript
+ * stubs and then mapped onto TypeScript's types, names the declarations can
+ * not refer to become <code>any</code>. Nested classes are declared in a
+ * namespace merged with their outer class.
+ *
+ * @author Michael Schmalle
+ * @since 1.0
+ */
+public class TsModelWriter implements ModelWriter {
+
+    private static Map<String, String> tsTypes;
+
+    static {
+        tsTypes = new HashMap<String, String>();
+
+        tsTypes.put("byte", "number");
+        tsTypes.put("short", "number");
+        tsTypes.put("int", "number");
+        tsTypes.put("long", "number");
+        tsTypes.put("float", "number");
+        tsTypes.put("double", "number");
+        tsTypes.put("char", "string");
+        tsTypes.put("String", "string");
+        tsTypes.put("function", "Function");
+    }
+
+    private IndentWriter buffer;
+
+    private String version;
+
+    private CommentFormatter commentFormatter;
+
+    private TypeResolver typeResolver;
+
+    private DocTagNormalizer docTags;
+
+    private MethodSignatures signatures;
+
+    public void setCommentFormatter(CommentFormatter commentFormatter) {
+        this.commentFormatter = commentFormatter;
+    }
+
+    public void setTypeResolver(TypeResolver typeResolver) {
+        this.typeResolver = typeResolver;
+    }
+
+    public void setDocTags(DocTagNormalizer docTags) {
+        this.docTags = docTags;
+    }
+
+    public void setSignatures(MethodSignatures signatures) {
+        this.signatures = signatures;
+    }
+
+    /**
+     * Renders into memory, the result is returned by {@link #toString()}.
+     */
+    public TsModelWriter(String version) {
+        this(version, new IndentWriter());
+    }
+
+    /**
+     * Streams the rendered output into <code>out</code>, {@link #flush()}
+     * once written.
+     */
+    public TsModelWriter(String version, Writer out) {
+        this(version, new IndentWriter(out));
+    }
+
+    private TsModelWriter(String version, IndentWriter buffer) {
+        this.version = version;
+        this.buffer = buffer;
+        buffer.setIndentation("    ");
+
+        commentFormatter = new CommentFormatter();
+        typeResolver = TypeResolver.createDefault();
+    }
+
+    private DocTagNormalizer getDocTags() {
+        if (docTags == null)
+            docTags = new DocTagNormalizer(typeResolver);
+        return docTags;
+    }
+
+    private MethodSignatures getSignatures() {
+        if (signatures == null)
+            signatures = new MethodSignatures(typeResolver, getDocTags());
+        return signatures;
+    }
+
+    public void flush() throws IOException {
+        buffer.flush();
+    }
+
+    @Override
+    public ModelWriter writeSource(JavaSource source) {
+        writePackage(source.getPackage());
+        for (JavaClass cls : source.getClasses()) {
+            writeClass(cls);
+        }
+        return this;
+    }
+
+    /**
+     * Writes the version header, once per declarations file.
+     */
+    @Override
+    public ModelWriter writePackage(JavaPackage pckg) {
+        buffer.write("/* API Version - ");
+        buffer.write(version);
+        buffer.write(" */");
+        buffer.newline();
+        return this;
+    }
+
+    @Override
+    public ModelWriter writeClass(JavaClass cls) {
+        buffer.newline();
+        writeDeclaration(cls, "declare ");
+
+        if (cls.getName().equals("Host") && !cls.isInner()) {
+            buffer.newline();
+            buffer.write("declare var host: Host;");
+            buffer.newline();
+        }
+
+        if (!cls.getNestedClasses().isEmpty()) {
+            buffer.newline();
+            writeNamespace(cls, "declare ");
+        }
+        return this;
+    }
+
+    private void writeDeclaration(JavaClass cls, String modifier) {
+        commentHeader(cls);
+        buffer.write(modifier);
+
+        if (cls.isEnum()) {
+            buffer.write("enum ");
+            buffer.write(cls.getName());
+            buffer.write(" {");
+            buffer.indent();
+            buffer.newline();
+            int ordinal = 0;
+            for (JavaField field : cls.getFields()) {
+                if (!field.isEnumConstant())
+                    continue;
+                commentHeader(field);
+                buffer.write(field.getName() + " = " + ordinal++ + ",");
+                buffer.newline();
+            }
+            buffer.deindent();
+            buffer.write("}");
+            buffer.newline();
+            return;
+        }
+
+        buffer.write("interface ");
+        buffer.write(cls.getName());
+        List<JavaClass> implementz = cls.getImplementedInterfaces();
+        if (implementz != null && !implementz.isEmpty()) {
+            buffer.write(" extends ");
+            for (ListIterator<JavaClass> iter = implementz.listIterator(); iter.hasNext();) {
+                buffer.write(toTsType(iter.next().getGenericFullyQualifiedName()));
+                if (iter.hasNext())
+                    buffer.write(", ");
+            }
+        }
+        buffer.write(" {");
+        buffer.indent();
+        buffer.newline();
+        for (ListIterator<JavaMethod> iter = cls.getMethods().listIterator(); iter.hasNext();) {
+            writeMethod(iter.next());
+            if (iter.hasNext())
+                buffer.newline();
+        }
+        buffer.deindent();
+        buffer.write("}");
+        buffer.newline();
+    }
+
+    private void writeNamespace(JavaClass cls, String modifier) {
+        buffer.write(modifier);
+        buffer.write("namespace ");
+        buffer.write(cls.getName());
+        buffer.write(" {");
+        buffer.indent();
+        buffer.newline();
+        for (ListIterator<JavaClass> iter = cls.getNestedClasses().listIterator(); iter.hasNext();) {
+            JavaClass nested = iter.next();
+            writeDeclaration(nested, "");
+            if (!nested.getNestedClasses().isEmpty())
+                writeNamespace(nested, "");
+            if (iter.hasNext())
+                buffer.newline();
+        }
+        buffer.deindent();
+        buffer.write("}");
+        buffer.newline();
+    }
+
+    @Override
+    public ModelWriter writeInitializer(JavaInitializer init) {
+        return null;
+    }
+
+    @Override
+    public ModelWriter writeAnnotation(JavaAnnotation annotation) {
+        return null;
+    }
+
+    @Override
+    public ModelWriter writeConstructor(JavaConstructor constructor) {
+        return null;
+    }
+
+    @Override
+    public ModelWriter writeMethod(JavaMethod method) {
+        commentHeader(method);
+
+        MethodSignature signature = getSignatures().getSignature(method);
+        buffer.write(signature.getName());
+        buffer.write("(");
+        int count = signature.getParameterCount();
+        for (int i = 0; i < count; i++) {
+            if (i > 0)
+                buffer.write(", ");
+            String type = fromJsType(signature.getParameterType(i));
+            if (i == count - 1 && signature.isVarArgs()) {
+                buffer.write("...");
+                type = type + "[]";
+            }
+            buffer.write(signature.getParameterName(i));
+            buffer.write(": ");
+            buffer.write(type);
+        }
+        buffer.write("): ");
+        buffer.write(fromJsType(signature.getReturnType()));
+        buffer.write(";");
+        buffer.newline();
+        return this;
+    }
+
+    @Override
+    public ModelWriter writeParameter(JavaParameter parameter) {
+        String type = toTsType(parameter.getType().getGenericFullyQualifiedName());
+        if (parameter.isVarArgs()) {
+            buffer.write("...");
+            type = type + "[]";
+        }
+        buffer.write(parameter.getName());
+        buffer.write(": ");
+        buffer.write(type);
+        return this;
+    }
+
+    @Override
+    public ModelWriter writeField(JavaField field) {
+        return null;
+    }
+
+    @Override
+    public String toString() {
+        return buffer.toString();
+    }
+
+    private void commentHeader(JavaAnnotatedElement entity) {
+        String comment = entity.getComment();
+        List<DocletTag> tags = entity instanceof JavaMethod ? getDocTags().getTags(
+                (JavaMethod)entity) : entity.getTags();
+        boolean hasComment = comment != null && comment.length() > 0;
+        boolean hasTags = tags != null && !tags.isEmpty();
+        if (!hasComment && !hasTags)
+            return;
+
+        buffer.write("/**");
+        buffer.newline();
+        if (hasComment) {
+            // the formatted continuation lines carry their prefix, written
+            // line by line so they are indented with the declaration
+            String[] lines = commentFormatter.format(comment).split("\n");
+            buffer.write(" * ");
+            for (String line : lines) {
+                buffer.write(line);
+                buffer.newline();
+            }
+        }
+        if (hasTags) {
+            if (hasComment) {
+                buffer.write(" *");
+                buffer.newline();
+            }
+            for (DocletTag tag : tags) {
+                buffer.write(" * @");
+                buffer.write(tag.getName());
+                if (tag.getValue().length() > 0) {
+                    buffer.write(' ');
+                    buffer.write(tag.getValue());
+                }
+                buffer.newline();
+            }
+        }
+        buffer.write(" */");
+        buffer.newline();
+    }
+
+    /**
+     * Returns the TypeScript type of the generic fully qualified name.
+     */
+    private String toTsType(String genericFullName) {
+        return fromJsType(typeResolver.resolve(genericFullName));
+    }
+
+    /**
+     * Returns the TypeScript type of the JavaScript type.
+     */
+    private static String fromJsType(String type) {
+        if (type.endsWith("[]"))
+            return toTsElementType(type.substring(0, type.length() - 2)) + "[]";
+        return toTsElementType(type);
+    }
+
+    private static String toTsElementType(String type) {
+        String tsType = tsTypes.get(type);
+        if (tsType != null)
+            return tsType;
+        // generics and types outside the API's packages
+        if (type.indexOf('<') != -1 || type.indexOf('.') > 0
+                && Character.isLowerCase(type.charAt(0)))
+            return "any";
+        return type;
+    }
+}
@@ -0,0 +1,132 @@
+////////////////////////////////////////////////////////////////////////////////
+// Copyright 2014 Michael Schmalle - Teoti Graphix, LLC
+// 
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+// 
+// http://www.apache.org/licenses/LICENSE-2.0 
+// 
+// Unless required by applicable law or agreed to in writing, software 
+// distributed under the License is distributed on an "AS IS" BASIS, 
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and 
+// limitations under the License
+// 
+// Author: Michael Schmalle, Principal Architect
+// mschmalle at teotigraphix dot com
+////////////////////////////////////////////////////////////////////////////////
+
+package com.teotigraphix.bitwig.apiparser.writer;
+
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Converts Java type names into the JavaScript types of the stubs, caching
+ * the result per type name so each distinct name is converted once.
+ * <p>
+ * A name with a {@link #addMapping(String, String) mapping} converts to the
+ * mapped type, any other name has its {@link #addPackagePrefix(String)
+ * package prefixes} removed and nested class separators replaced. Thread
+ * safe once the rules are set, one instance is shared by the writers of a
+ * {@link com.teotigraphix.bitwig.apiparser.core.ParserConfig} and by the
+ * jobs of a {@link com.teotigraphix.bitwig.apiparser.core.BatchRunner}.
+ *
+ * @author Michael Schmalle
+ * @since 1.0
+ */
+public class TypeResolver {
+
+    private ConcurrentMap<String, String> mappings = new ConcurrentHashMap<String, String>();
+
+    private List<String> packagePrefixes = new CopyOnWriteArrayList<String>();
+
+    private ConcurrentMap<String, String> resolved = new ConcurrentHashMap<String, String>();
+
+    /**
+     * Returns a resolver with the Bitwig API's rules.
+     */
+    public static TypeResolver createDefault() {
+        TypeResolver resolver = new TypeResolver();
+        resolver.addMapping("int", "int");
+        resolver.addMapping("double", "double");
+        resolver.addMapping("boolean", "boolean");
+
+        resolver.addMapping("java.lang.Number", "number");
+        resolver.addMapping("java.lang.Object", "Object");
+        resolver.addMapping("java.lang.String", "string");
+
+        resolver.addMapping("byte[]", "byte[]");
+        resolver.addMapping("java.lang.Object[]", "Object[]");
+        resolver.addMapping("java.lang.String[]", "String[]");
+
+        resolver.addMapping("org.mozilla.javascript.Callable", "function");
+        resolver.addMapping("org.mozilla.javascript.Function", "function");
+
+        resolver.addPackagePrefix("com.bitwig.base.control_surface.iface.");
+        return resolver;
+    }
+
+    /**
+     * Converts the fully qualified name to the JavaScript type.
+     */
+    public void addMapping(String qualifiedName, String jsType) {
+        mappings.put(qualifiedName, jsType);
+        resolved.clear();
+    }
+
+    /**
+     * Removes the prefix, such as <code>com.example.</code>, from names
+     * without a mapping.
+     */
+    public void addPackagePrefix(String prefix) {
+        packagePrefixes.add(prefix);
+        resolved.clear();
+    }
+
+    /**
+     * Returns the rules in a canonical form, the mappings sorted by name
+     * followed by the package prefixes in order; equal rules convert every
+     * name the same.
+     */
+    public String getRules() {
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<String, String> entry : new TreeMap<String, String>(mappings).entrySet()) {
+            sb.append(entry.getKey()).append('=').append(entry.getValue()).append('\n');
+        }
+        for (String prefix : packagePrefixes) {
+            sb.append(prefix).append('\n');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Returns the JavaScript type of the generic fully qualified name.
+     */
+    public String resolve(String genericFullName) {
+        String result = resolved.get(genericFullName);
+        if (result == null) {
+            result = mappings.get(genericFullName);
+            if (result == null)
+                result = toSimpleName(genericFullName);
+            resolved.putIfAbsent(genericFullName, result);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the name without its package prefixes, ignoring the mappings.
+     */
+    public String toSimpleName(String qualifiedName) {
+        String result = qualifiedName;
+        for (String prefix : packagePrefixes) {
+            result = result.replace(prefix, "");
+        }
+        return result.replace('$', '.');
+    }
+}